@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import javalib.worldimages.Posn;
+
+// times the board hot paths on boards of increasing size
+// The suite times each hot path for every board size and mine density, leaving setup out
+// of the timings, and reports how much each operation allocates as well as how long it
+// takes. Results are written to a file that a later run can be compared against.
+// run with: java BenchMinesweep [baseline.tsv]
+class BenchMinesweep {
+  // the side lengths of the square boards that are timed
+  static int[] SIZES = {50, 100, 200, 500, 1000, 2000};
+
+  // the side lengths of the square boards in the suite
+  static int[] SUITE_SIZES = {18, 64, 256, 1024, 4096};
+
+  // the percentages of cells that are mines in the suite, up past a half so that setMines
+  // places its mines by picking the cells left clear
+  static int[] DENSITIES = {1, 10, 20, 35, 50, 65};
+
+  // the largest board the scene is built for, since every cell becomes an image
+  static int MAX_SCENE_SIZE = 256;
+
+  // the number of timed runs for each size, the fastest of which is reported
+  static int RUNS = 5;
+
+  // how much slower than the baseline a result can be before it is called a regression
+  static double THRESHOLD = 1.2;
+
+  // where the suite writes its results
+  static String RESULTS = "bench-results.tsv";
+
+  // counts the bytes allocated by each thread
+  static com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  List<String> results;
+
+  BenchMinesweep() {
+    this.results = new ArrayList<String>();
+  }
+
+  public static void main(String[] args) throws IOException {
+    BenchMinesweep suite = new BenchMinesweep();
+    suite.runSuite();
+    suite.save(Paths.get(BenchMinesweep.RESULTS));
+    if (args.length > 0) {
+      suite.compare(Paths.get(args[0]));
+    }
+    new BenchMinesweep().benchSolver();
+    new BenchMinesweep().benchProbability();
+    new BenchMinesweep().benchNewGame();
+  }
+
+  // EFFECT: times every hot path on every size and density in the suite
+  void runSuite() {
+    System.out.println("case\tsize\tmines%\tns/op\tB/op\tns/cell");
+    for (int n : BenchMinesweep.SUITE_SIZES) {
+      for (int percent : BenchMinesweep.DENSITIES) {
+        this.benchBoard(n, percent);
+      }
+    }
+  }
+
+  // EFFECT: times each hot path on an n by n board with the given percentage of mines
+  // Cases that change the board get a fresh one before every run; the rest repeat
+  // enough times on one board to take a measurable time
+  void benchBoard(int n, int percent) {
+    int mines = (int) (((long) n * n * percent) / 100);
+    Board[] board = new Board[1];
+    Game[] game = new Game[1];
+    this.measure("setBoard", n, percent, 1, () -> { },
+        () -> board[0] = new Board(n, n));
+    this.measure("setMines", n, percent, 1, () -> board[0] = new Board(n, n),
+        () -> board[0].setMines(mines, new SplittableRandom(1)));
+    this.measure("setContacts", n, percent, 1, () -> { },
+        () -> board[0].setContacts());
+    this.measure("reveal", n, percent, 1, () -> {
+      game[0] = new Game(n, n, mines, 1);
+      game[0].board.clearAround(game[0].board.index(n / 2, n / 2), game[0].rand);
+    }, () -> game[0].board.reveal(game[0].board.index(n / 2, n / 2)));
+    this.measure("checkIfDone", n, percent, 100000, () -> { },
+        () -> game[0].checkIfDone());
+    BoardView view = new BoardView();
+    Posn[] clicks = new Posn[1024];
+    SplittableRandom rand = new SplittableRandom(2);
+    int width = (n + 2) * BoardConfig.STANDARD.cellSize;
+    for (int i = 0; i < clicks.length; i = i + 1) {
+      clicks[i] = new Posn(rand.nextInt(width), rand.nextInt(width));
+    }
+    int[] hit = new int[1];
+    this.measure("cellAt", n, percent, 100, () -> { }, () -> {
+      for (Posn click : clicks) {
+        hit[0] = hit[0] + view.cellAt(game[0].board, click);
+      }
+    });
+    if (n <= BenchMinesweep.MAX_SCENE_SIZE) {
+      MinesweepWorld world = new MinesweepWorld(game[0]);
+      this.measure("makeScene", n, percent, 1, () -> {
+        world.cellImages = null;
+        world.changed();
+      }, () -> world.makeScene());
+      int[] cell = new int[1];
+      this.measure("makeScene1", n, percent, 1, () -> {
+        cell[0] = (cell[0] + 1) % game[0].board.size;
+        world.changedCell(cell[0]);
+      }, () -> world.makeScene());
+    }
+  }
+
+  // EFFECT: times op, run reps times in a row after each call to setup, reporting the
+  // fastest of RUNS runs per call to op, the bytes it allocated per call and the time per
+  // cell of the n by n board
+  // The first run only warms up the JIT
+  void measure(String name, int n, int percent, int reps, Runnable setup, Runnable op) {
+    long thread = Thread.currentThread().getId();
+    long best = Long.MAX_VALUE;
+    long bytes = 0;
+    for (int run = 0; run <= BenchMinesweep.RUNS; run = run + 1) {
+      setup.run();
+      long allocated = BenchMinesweep.THREADS.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+      for (int i = 0; i < reps; i = i + 1) {
+        op.run();
+      }
+      long time = System.nanoTime() - start;
+      allocated = BenchMinesweep.THREADS.getThreadAllocatedBytes(thread) - allocated;
+      if ((run > 0) && (time < best)) {
+        best = time;
+        bytes = allocated;
+      }
+    }
+    double time = (double) best / reps;
+    String line = name + "\t" + n + "\t" + percent + "\t" + time + "\t" + (bytes / reps)
+        + "\t" + (time / ((long) n * n));
+    System.out.println(line);
+    this.results.add(line);
+  }
+
+  // EFFECT: writes the results of the suite to the given file
+  void save(Path file) throws IOException {
+    Files.write(file, this.results);
+  }
+
+  // EFFECT: prints each result beside the same case in the given baseline file, marking
+  // those that have become more than THRESHOLD times slower
+  void compare(Path baseline) throws IOException {
+    HashMap<String, Double> before = new HashMap<String, Double>();
+    for (String line : Files.readAllLines(baseline)) {
+      String[] fields = line.split("\t");
+      before.put(fields[0] + "\t" + fields[1] + "\t" + fields[2], Double.parseDouble(fields[3]));
+    }
+    System.out.println("case\tsize\tmines%\tbaseline\tnow\tratio");
+    for (String line : this.results) {
+      String[] fields = line.split("\t");
+      Double old = before.get(fields[0] + "\t" + fields[1] + "\t" + fields[2]);
+      if (old != null) {
+        double ratio = Double.parseDouble(fields[3]) / Math.max(1, old);
+        System.out.println(fields[0] + "\t" + fields[1] + "\t" + fields[2] + "\t" + old + "\t"
+            + fields[3] + "\t" + ratio
+            + (ratio > BenchMinesweep.THRESHOLD ? "\tREGRESSION" : ""));
+      }
+    }
+  }
+
+  // EFFECT: prints how long the solver takes to catch up after each move of a game played
+  // only on the cells it finds safe, on boards with one cell in six a mine
+  // The worst move matters most, since the solver runs between frames during live play
+  void benchSolver() {
+    System.out.println("solver update per move (1/6 mines)");
+    System.out.println("size\tmoves\tmean us\tmax us");
+    for (int n : BenchMinesweep.SIZES) {
+      long total = 0;
+      long worst = 0;
+      int moves = 0;
+      for (int run = 0; run <= BenchMinesweep.RUNS; run = run + 1) {
+        Game game = new Game(n, n, (n * n) / 6, run);
+        game.useSolver();
+        game.reveal(n / 2, n / 2);
+        int safe = game.solver.nextSafe();
+        while (safe >= 0) {
+          long start = System.nanoTime();
+          game.revealAt(safe, true);
+          safe = game.solver.nextSafe();
+          long time = System.nanoTime() - start;
+          if (run > 0) {
+            total = total + time;
+            worst = Math.max(worst, time);
+            moves = moves + 1;
+          }
+        }
+      }
+      System.out.println(n + "\t" + moves + "\t" + ((double) total / Math.max(1, moves) / 1000)
+          + "\t" + (worst / 1000.0));
+    }
+  }
+
+  // EFFECT: prints how long the probability engine takes each time a game runs out of
+  // safe cells, over whole games on the expert board and on bigger boards of the same
+  // density, along with how many components had to be counted rather than reused
+  void benchProbability() {
+    int[][] sizes = {{30, 16, 99}, {100, 100, 2062}, {300, 300, 18562}};
+    System.out.println("probability engine per guess");
+    System.out.println("board\tguesses\tmean ms\tmax ms\tcounted");
+    for (int[] size : sizes) {
+      long total = 0;
+      long worst = 0;
+      int guesses = 0;
+      int counted = 0;
+      for (int run = 0; run <= BenchMinesweep.RUNS; run = run + 1) {
+        Game game = new Game(size[0], size[1], size[2], run);
+        game.useSolver();
+        ProbabilityEngine odds = game.solver.probabilities();
+        game.reveal(size[1] / 2, size[0] / 2);
+        while (!game.gameFinished) {
+          int safe = game.solver.nextSafe();
+          if (safe < 0) {
+            int before = odds.solved;
+            long start = System.nanoTime();
+            safe = odds.safest();
+            long time = System.nanoTime() - start;
+            if (run > 0) {
+              total = total + time;
+              worst = Math.max(worst, time);
+              guesses = guesses + 1;
+              counted = counted + odds.solved - before;
+            }
+          }
+          game.revealAt(safe, true);
+        }
+      }
+      System.out.println(size[0] + "x" + size[1] + "\t" + guesses + "\t"
+          + ((double) total / Math.max(1, guesses) / 1000000) + "\t" + (worst / 1000000.0)
+          + "\t" + counted);
+    }
+  }
+
+  // EFFECT: prints how long newGame() keeps the caller waiting with and without a pool
+  // of ready boards, at 20% mines, leaving the pool time to catch up between games as a
+  // player would
+  void benchNewGame() {
+    System.out.println("newGame (20% mines)");
+    System.out.println("size\tbuild ms\tpooled ms\tpool");
+    for (int n : BenchMinesweep.SIZES) {
+      Game built = new Game(n, n, (n * n) / 5, 1);
+      Game pooled = new Game(n, n, (n * n) / 5, 1);
+      BoardPool pool = new BoardPool(2, 1);
+      pooled.usePool(pool);
+      long buildBest = Long.MAX_VALUE;
+      long pooledBest = Long.MAX_VALUE;
+      for (int run = 0; run <= BenchMinesweep.RUNS; run = run + 1) {
+        long start = System.nanoTime();
+        built.newGame();
+        long time = System.nanoTime() - start;
+        pool.settle();
+        start = System.nanoTime();
+        pooled.newGame();
+        long poolTime = System.nanoTime() - start;
+        if (run > 0) {
+          buildBest = Math.min(buildBest, time);
+          pooledBest = Math.min(pooledBest, poolTime);
+        }
+      }
+      pool.settle();
+      System.out.println(n + "\t" + (buildBest / 1000000.0) + "\t" + (pooledBest / 1000000.0)
+          + "\t" + pool);
+      pool.shutdown();
+    }
+  }
+}
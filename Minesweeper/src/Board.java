@@ -0,0 +1,493 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// represents the state of a game board as flat arrays indexed by row * width + col, whose
+// cells touch each other as its topology says
+class Board {
+  Topology topology;
+  int width;
+  int height;
+  int size;
+  int numMines;
+  int numRevealed;
+  int numFlagged;
+  BitSet mines;
+  BitSet revealed;
+  BitSet flagged;
+  byte[] contacts;
+  int[] lastRevealed;
+
+  // what a player sees of a cell that is not a revealed safe cell, which shows its contacts
+  static int SEEN_MINE = 9;
+  static int SEEN_HIDDEN = 10;
+  static int SEEN_FLAG = 11;
+
+  // how many random cells clearAround tries for each mine it moves before it counts its
+  // way to one of the free cells instead
+  static int DRAWS = 8;
+
+  // a square board of the given size
+  Board(int width, int height) {
+    this(new SquareTopology(width, height));
+  }
+
+  // a board of the given topology, which boards of the same size can share
+  Board(Topology topology) {
+    this.topology = topology;
+    this.width = topology.width;
+    this.height = topology.height;
+    this.size = topology.size;
+    this.numMines = 0;
+    this.numRevealed = 0;
+    this.numFlagged = 0;
+    this.mines = new BitSet(this.size);
+    this.revealed = new BitSet(this.size);
+    this.flagged = new BitSet(this.size);
+    this.contacts = new byte[this.size];
+    this.lastRevealed = new int[16];
+  }
+
+  // EFFECT: empties this board so it can be used for another game without allocating
+  void clear() {
+    this.clearMines();
+    this.numFlagged = 0;
+    this.flagged.clear();
+  }
+
+  // EFFECT: empties this board of mines and revealed cells, leaving any flags where they are
+  void clearMines() {
+    this.numMines = 0;
+    this.numRevealed = 0;
+    this.mines.clear();
+    this.revealed.clear();
+    Arrays.fill(this.contacts, (byte) 0);
+  }
+
+  // Returns the index of the cell at the given row and column
+  int index(int row, int col) {
+    return (row * this.width) + col;
+  }
+
+  // Returns the row of the cell at the given index
+  int row(int idx) {
+    return idx / this.width;
+  }
+
+  // Returns the column of the cell at the given index
+  int col(int idx) {
+    return idx % this.width;
+  }
+
+  // Returns true if the given row and column are on this board
+  boolean inBounds(int row, int col) {
+    return (row >= 0) && (row < this.height) && (col >= 0) && (col < this.width);
+  }
+
+  // EFFECT: writes the indices of the cells touching the cell at idx into the given array,
+  // which has room for Topology.MAX_DEGREE of them
+  // Returns the number of indices written
+  int neighbours(int idx, int[] out) {
+    return this.topology.neighbours(idx, out);
+  }
+
+  // Returns true if the cell at idx is a mine
+  boolean isMine(int idx) {
+    return this.mines.get(idx);
+  }
+
+  // Returns true if the cell at idx has been revealed
+  boolean isRevealed(int idx) {
+    return this.revealed.get(idx);
+  }
+
+  // Returns true if the cell at idx has been flagged
+  boolean isFlagged(int idx) {
+    return this.flagged.get(idx);
+  }
+
+  // Returns the number of mines touching the cell at idx
+  int getContacts(int idx) {
+    return this.contacts[idx];
+  }
+
+  // Returns what a player can see of the cell at idx: its contacts once it is revealed,
+  // SEEN_MINE if it is a revealed mine, and otherwise SEEN_FLAG or SEEN_HIDDEN
+  int seen(int idx) {
+    if (this.revealed.get(idx)) {
+      return this.mines.get(idx) ? Board.SEEN_MINE : this.contacts[idx];
+    }
+    else if (this.flagged.get(idx)) {
+      return Board.SEEN_FLAG;
+    }
+    else {
+      return Board.SEEN_HIDDEN;
+    }
+  }
+
+  // EFFECT: makes the cell at idx a mine
+  void placeMine(int idx) {
+    if (!this.mines.get(idx)) {
+      this.mines.set(idx);
+      this.numMines = this.numMines + 1;
+    }
+  }
+
+  // EFFECT: sets the given number of random free cells on this board as mines, drawing
+  // from the given generator so that the same seed always gives the same board
+  // Picks random cells until enough free ones are found, or when mines would take up
+  // more than half of the free cells, picks the cells to leave clear instead, so each
+  // pick is expected to take at most two tries
+  void setMines(int count, SplittableRandom rand) {
+    int free = this.size - this.numMines;
+    int wanted = Math.min(count, free);
+    if ((2 * wanted) <= free) {
+      int placed = 0;
+      while (placed < wanted) {
+        int idx = rand.nextInt(this.size);
+        if (!this.mines.get(idx)) {
+          this.placeMine(idx);
+          placed = placed + 1;
+        }
+      }
+    }
+    else {
+      BitSet clear = new BitSet(this.size);
+      int cleared = 0;
+      while (cleared < (free - wanted)) {
+        int idx = rand.nextInt(this.size);
+        if (!this.mines.get(idx) && !clear.get(idx)) {
+          clear.set(idx);
+          cleared = cleared + 1;
+        }
+      }
+      clear.or(this.mines);
+      for (int i = clear.nextClearBit(0); i < this.size; i = clear.nextClearBit(i + 1)) {
+        this.placeMine(i);
+      }
+    }
+  }
+
+  // EFFECT: empties this board of mines, places count mines using the given seed, and then
+  // moves any off the cells around start
+  // Flags are left alone, since a player may have placed them before the mines were
+  void fillAround(int count, long seed, int start) {
+    SplittableRandom rand = new SplittableRandom(seed);
+    this.clearMines();
+    this.setMines(count, rand);
+    this.setContacts();
+    this.clearAround(start, rand);
+  }
+
+  // EFFECT: changes the contact count of every cell based on how many mines it is touching
+  void setContacts() {
+    if (this.topology.kind == Topology.SQUARE) {
+      this.countRows();
+    }
+    else {
+      this.countEach();
+    }
+  }
+
+  // EFFECT: counts the mines touching each cell one cell at a time, on any topology
+  void countEach() {
+    int[] touching = new int[Topology.MAX_DEGREE];
+    for (int i = 0; i < this.size; i = i + 1) {
+      this.contacts[i] = (byte) this.minesInContact(i, touching);
+    }
+  }
+
+  // EFFECT: counts the mines touching every cell of a square board 64 cells at a time
+  // Each row of mines is copied out into words of its own, 64 cells to a word, so the rows
+  // above and below line up with it. Shifting each of the three rows a cell left and right
+  // gives the eight neighbours as eight words, which are added up in four words that each
+  // hold one bit of all 64 counts, a carry rippling up through them as in an adder. The
+  // counts are then spread back out into bytes eight cells at a time.
+  void countRows() {
+    if (this.size == 0) {
+      return;
+    }
+    int words = (this.width + 63) / 64;
+    long[] mines = this.mines.toLongArray();
+    long[] above = new long[words];
+    long[] row = new long[words];
+    long[] below = new long[words];
+    this.copyRow(mines, 0, row);
+    long[] sum = new long[4];
+    ByteBuffer counts = ByteBuffer.wrap(this.contacts).order(ByteOrder.LITTLE_ENDIAN);
+    for (int r = 0; r < this.height; r = r + 1) {
+      if ((r + 1) < this.height) {
+        this.copyRow(mines, r + 1, below);
+      }
+      else {
+        Arrays.fill(below, 0);
+      }
+      for (int w = 0; w < words; w = w + 1) {
+        Arrays.fill(sum, 0);
+        this.add(sum, this.fromLeft(above, w));
+        this.add(sum, above[w]);
+        this.add(sum, this.fromRight(above, w));
+        this.add(sum, this.fromLeft(row, w));
+        this.add(sum, this.fromRight(row, w));
+        this.add(sum, this.fromLeft(below, w));
+        this.add(sum, below[w]);
+        this.add(sum, this.fromRight(below, w));
+        this.writeCounts(counts, r, w, sum);
+      }
+      long[] old = above;
+      above = row;
+      row = below;
+      below = old;
+    }
+  }
+
+  // Returns the given word of a row with each cell's neighbour on the left moved onto it
+  long fromLeft(long[] line, int w) {
+    long bits = line[w] << 1;
+    if (w > 0) {
+      bits = bits | (line[w - 1] >>> 63);
+    }
+    return bits;
+  }
+
+  // Returns the given word of a row with each cell's neighbour on the right moved onto it
+  long fromRight(long[] line, int w) {
+    long bits = line[w] >>> 1;
+    if ((w + 1) < line.length) {
+      bits = bits | (line[w + 1] << 63);
+    }
+    return bits;
+  }
+
+  // EFFECT: adds one to each of the 64 counts in the given sum whose bit is set in the given
+  // word, where the sum holds the lowest bit of every count first, then the next and so on
+  void add(long[] sum, long bits) {
+    long carry = bits;
+    for (int i = 0; (i < sum.length) && (carry != 0); i = i + 1) {
+      long next = sum[i] & carry;
+      sum[i] = sum[i] ^ carry;
+      carry = next;
+    }
+  }
+
+  // EFFECT: copies the mines in the given row out of the given words of the whole board
+  // into the given words, 64 cells to a word starting from the first cell of the row
+  void copyRow(long[] mines, int r, long[] into) {
+    long first = (long) r * this.width;
+    for (int w = 0; w < into.length; w = w + 1) {
+      long at = first + (64L * w);
+      int word = (int) (at >>> 6);
+      int shift = (int) (at & 63);
+      long bits = 0;
+      if (word < mines.length) {
+        bits = mines[word] >>> shift;
+      }
+      if ((shift != 0) && ((word + 1) < mines.length)) {
+        bits = bits | (mines[word + 1] << (64 - shift));
+      }
+      int left = this.width - (64 * w);
+      if (left < 64) {
+        bits = bits & ((1L << left) - 1);
+      }
+      into[w] = bits;
+    }
+  }
+
+  // EFFECT: writes the counts of the 64 cells in the given word of the given row, whose
+  // bits are in the given sum, into the given buffer of counts
+  void writeCounts(ByteBuffer counts, int r, int w, long[] sum) {
+    int first = (r * this.width) + (64 * w);
+    int cells = Math.min(64, this.width - (64 * w));
+    for (int b = 0; b < cells; b = b + 8) {
+      long eight = Board.SPREAD[(int) (sum[0] >>> b) & 0xFF]
+          | (Board.SPREAD[(int) (sum[1] >>> b) & 0xFF] << 1)
+          | (Board.SPREAD[(int) (sum[2] >>> b) & 0xFF] << 2)
+          | (Board.SPREAD[(int) (sum[3] >>> b) & 0xFF] << 3);
+      if ((cells - b) >= 8) {
+        counts.putLong(first + b, eight);
+      }
+      else {
+        for (int i = b; i < cells; i = i + 1) {
+          this.contacts[first + i] = (byte) (eight & 0x0F);
+          eight = eight >>> 8;
+        }
+      }
+    }
+  }
+
+  // each byte's bits moved to the low bit of a byte of their own, lowest first
+  static long[] SPREAD = Board.spreadTable();
+
+  // Returns the table for SPREAD
+  static long[] spreadTable() {
+    long[] table = new long[256];
+    for (int x = 0; x < 256; x = x + 1) {
+      for (int bit = 0; bit < 8; bit = bit + 1) {
+        table[x] = table[x] | ((long) ((x >>> bit) & 1) << (8 * bit));
+      }
+    }
+    return table;
+  }
+
+  // Returns the number of mines touching the cell at idx, using the given array
+  // as scratch space for the neighbour indices
+  int minesInContact(int idx, int[] touching) {
+    int total = 0;
+    int count = this.neighbours(idx, touching);
+    for (int i = 0; i < count; i = i + 1) {
+      if (this.mines.get(touching[i])) {
+        total = total + 1;
+      }
+    }
+    return total;
+  }
+
+  // EFFECT: moves every mine in the cell at idx and the cells touching it to a random free
+  // cell outside of them, so the cell at idx touches no mines, updating only the contact
+  // counts around the cells that changed
+  // Each mine tries DRAWS random cells and, if none of them is free, goes to a free cell
+  // picked by its rank, so a dense board costs at most one pass over the mines per mine
+  // If the rest of the board is too full for that, only a mine at idx itself is moved
+  // The mines fit outside the cleared cells exactly when there are no more of them than
+  // there are other cells, however many of them are inside to start with
+  void clearAround(int idx, SplittableRandom rand) {
+    int[] area = new int[Topology.MAX_DEGREE + 1];
+    int count = this.neighbours(idx, area);
+    area[count] = idx;
+    count = count + 1;
+    if (this.numMines > (this.size - count)) {
+      area[0] = idx;
+      count = 1;
+    }
+    if (this.numMines <= (this.size - count)) {
+      int free = this.size - this.numMines - (count - this.minesIn(area, count));
+      for (int i = 0; i < count; i = i + 1) {
+        if (this.mines.get(area[i])) {
+          this.moveMine(area[i], this.freeCellOutside(area, count, free, rand));
+          free = free - 1;
+        }
+      }
+    }
+  }
+
+  // Returns a random cell that is not a mine and not one of the first count cells in the
+  // given array, of which there are the given number, which must be at least one
+  int freeCellOutside(int[] area, int count, int free, SplittableRandom rand) {
+    for (int draw = 0; draw < Board.DRAWS; draw = draw + 1) {
+      int target = rand.nextInt(this.size);
+      if (!this.mines.get(target) && !this.contains(area, count, target)) {
+        return target;
+      }
+    }
+    int rank = rand.nextInt(free);
+    int target = this.mines.nextClearBit(0);
+    while ((rank > 0) || this.contains(area, count, target)) {
+      if (!this.contains(area, count, target)) {
+        rank = rank - 1;
+      }
+      target = this.mines.nextClearBit(target + 1);
+    }
+    return target;
+  }
+
+  // Returns how many of the first count cells in the given array are mines
+  int minesIn(int[] cells, int count) {
+    int total = 0;
+    for (int i = 0; i < count; i = i + 1) {
+      if (this.mines.get(cells[i])) {
+        total = total + 1;
+      }
+    }
+    return total;
+  }
+
+  // Returns true if idx is one of the first count cells in the given array
+  boolean contains(int[] cells, int count, int idx) {
+    boolean found = false;
+    for (int i = 0; i < count; i = i + 1) {
+      found = found || (cells[i] == idx);
+    }
+    return found;
+  }
+
+  // EFFECT: moves the mine at from to the free cell at to, changing the contact counts of
+  // the cells touching either one
+  void moveMine(int from, int to) {
+    int[] touching = new int[Topology.MAX_DEGREE];
+    this.mines.clear(from);
+    int count = this.neighbours(from, touching);
+    for (int i = 0; i < count; i = i + 1) {
+      this.contacts[touching[i]] = (byte) (this.contacts[touching[i]] - 1);
+    }
+    this.mines.set(to);
+    count = this.neighbours(to, touching);
+    for (int i = 0; i < count; i = i + 1) {
+      this.contacts[touching[i]] = (byte) (this.contacts[touching[i]] + 1);
+    }
+  }
+
+  // EFFECT: flags the cell at idx if it is not flagged, otherwise removes the flag
+  void toggleFlag(int idx) {
+    if (this.flagged.get(idx)) {
+      this.numFlagged = this.numFlagged - 1;
+    }
+    else {
+      this.numFlagged = this.numFlagged + 1;
+    }
+    this.flagged.flip(idx);
+  }
+
+  // EFFECT: reveals only the cell at idx, counting it if it is not a mine
+  void markRevealed(int idx) {
+    this.revealed.set(idx);
+    if (!this.mines.get(idx)) {
+      this.numRevealed = this.numRevealed + 1;
+    }
+  }
+
+  // EFFECT: reveals the cell at idx, and keeps spreading to the cells touching any
+  // revealed cell that is touching no mines, skipping flagged cells
+  // Returns the number of cells newly revealed, whose indices are left at the start of
+  // lastRevealed until the next call
+  // lastRevealed doubles as the work list, so each cell is revealed and visited once
+  int reveal(int idx) {
+    if (this.revealed.get(idx) || this.flagged.get(idx)) {
+      return 0;
+    }
+    int[] touching = new int[Topology.MAX_DEGREE];
+    this.markRevealed(idx);
+    this.lastRevealed[0] = idx;
+    int count = 1;
+    for (int next = 0; next < count; next = next + 1) {
+      int cur = this.lastRevealed[next];
+      if ((this.contacts[cur] == 0) && !this.mines.get(cur)) {
+        int found = this.neighbours(cur, touching);
+        for (int i = 0; i < found; i = i + 1) {
+          int other = touching[i];
+          if (!this.revealed.get(other) && !this.flagged.get(other)) {
+            this.markRevealed(other);
+            if (count == this.lastRevealed.length) {
+              this.lastRevealed = Arrays.copyOf(this.lastRevealed, 
+                  Math.min(this.size, 2 * count));
+            }
+            this.lastRevealed[count] = other;
+            count = count + 1;
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  // EFFECT: reveals every mine on this board
+  void revealMines() {
+    this.revealed.or(this.mines);
+  }
+
+  // Returns true if every cell that is not a mine has been revealed
+  boolean allSafeRevealed() {
+    return this.numRevealed == (this.size - this.numMines);
+  }
+}
@@ -0,0 +1,167 @@
+import java.awt.Color;
+import java.util.concurrent.ConcurrentHashMap;
+import javalib.worldimages.*;
+
+// the images for drawing games with a given cell and font size, shared by every game drawn
+// at that size
+// The images of the cells are all built with the assets. The info bar's are each built the
+// first time they are needed; two threads asking for one at once may both build it, which
+// is harmless as the images are never changed once built.
+class BoardAssets {
+  int cellSize;
+  int fontSize;
+  volatile WorldImage flag;
+  volatile WorldImage clock;
+  volatile WorldImage restart;
+  ImageCache cells;
+
+  // the assets for every cell and font size asked for so far
+  static ConcurrentHashMap<String, BoardAssets> SIZES = 
+      new ConcurrentHashMap<String, BoardAssets>();
+
+  BoardAssets(int cellSize, int fontSize) {
+    this.cellSize = cellSize;
+    this.fontSize = fontSize;
+    this.flag = null;
+    this.clock = null;
+    this.restart = null;
+    this.cells = new ImageCache(this);
+  }
+
+  // Returns the shared assets for the given cell and font size
+  static BoardAssets of(int cellSize, int fontSize) {
+    return BoardAssets.SIZES.computeIfAbsent(cellSize + "/" + fontSize, 
+        k -> new BoardAssets(cellSize, fontSize));
+  }
+
+  // Returns the image of a flag
+  WorldImage flag() {
+    if (this.flag == null) {
+      this.flag = this.flagImage();
+    }
+    return this.flag;
+  }
+
+  // Returns the image of the clock in the info bar
+  WorldImage clock() {
+    if (this.clock == null) {
+      this.clock = this.clockImage();
+    }
+    return this.clock;
+  }
+
+  // Returns the image of the restart button in the info bar
+  WorldImage restart() {
+    if (this.restart == null) {
+      this.restart = this.restartImage();
+    }
+    return this.restart;
+  }
+
+  // Gets the image of a cell in the given state with the given parity, shared with every
+  // other cell that looks the same
+  WorldImage cellImage(boolean clicked, boolean mine, boolean flagged, int contacts, 
+      int parity) {
+    return this.cells.cellImage(clicked, mine, flagged, contacts, parity);
+  }
+
+  // Builds the image for a cell in the given state drawn in the given color
+  WorldImage drawCell(boolean clicked, boolean mine, boolean flagged, int contacts, 
+      Color color) {
+    WorldImage mineImage = new CircleImage((this.cellSize / 4), 
+        OutlineMode.SOLID, Utils.MINE_COLOR);
+    
+    if (clicked) {
+      if (mine) {
+        return new OverlayImage(mineImage,
+            new RectangleImage(this.cellSize, this.cellSize,
+            OutlineMode.SOLID, color));
+      }
+      else {
+        return new OverlayImage(new TextImage(Integer.toString(contacts), 
+            this.fontSize, FontStyle.BOLD, new Utils().getColor(contacts)),
+            new RectangleImage(this.cellSize, this.cellSize,
+            OutlineMode.SOLID, color));
+      }
+    }
+    else {
+      WorldImage emptyCell = new RectangleImage(this.cellSize, this.cellSize,
+          OutlineMode.SOLID, color);
+      if (flagged) {
+        return new OverlayImage(this.flag(), emptyCell);
+      }
+      else {
+        return emptyCell;
+      }
+    }
+  }
+  
+  // Gets the image for a flag
+  WorldImage flagImage() {
+    WorldImage flag = new CropImage(0, 0, (this.cellSize / 4), 
+        (this.cellSize / 8),
+        new CircleImage((this.cellSize / 8), 
+            OutlineMode.SOLID, new Color(200, 10, 10)));
+    WorldImage pole = new RectangleImage(3, (this.cellSize / 2), 
+        OutlineMode.SOLID, new Color(200, 10, 10));
+    flag = new OverlayOffsetImage(pole, -0.5, (this.cellSize / 4), flag);
+    WorldImage tri = new EquilateralTriangleImage((this.cellSize / 3), 
+        OutlineMode.SOLID, new Color(200, 10, 10));
+    tri = new RotateImage(tri, 90.0);
+    flag = new OverlayOffsetImage(tri, -(this.cellSize / 8), 
+        (this.cellSize / 8), flag);
+    return flag;
+  }
+  
+  // Gets the image for a clock
+  WorldImage clockImage() {
+    WorldImage clockBase = new CircleImage((this.cellSize / 2) - 3, 
+        OutlineMode.SOLID, new Color(255, 230, 60, 255));
+    WorldImage hand1 = new RectangleImage(2, this.cellSize / 4, 
+        OutlineMode.SOLID, Color.black);
+    WorldImage hand2 = new RectangleImage(this.cellSize / 5, 2, 
+        OutlineMode.SOLID, Color.black);
+    WorldImage hands = new OverlayOffsetImage(hand1, (this.cellSize / 10),
+        (this.cellSize / 8), hand2);
+    WorldImage face = new OverlayOffsetImage(hands, -(this.cellSize / 10),
+        (this.cellSize / 8) - 2, new CircleImage(this.cellSize / 3, 
+        OutlineMode.SOLID, Color.white));
+    clockBase = new OverlayImage(face, clockBase);
+    WorldImage buttonTop = new EllipseImage((this.cellSize / 3), 
+        (this.cellSize / 6), OutlineMode.SOLID, new Color(255, 230, 60, 255));
+    WorldImage pole = new RectangleImage((this.cellSize / 8),
+        (this.cellSize / 2), OutlineMode.SOLID, new Color(255, 230, 60, 255));
+    WorldImage button = new OverlayOffsetImage(buttonTop, 0, 
+        (this.cellSize / 4), pole);
+    WorldImage clock = new OverlayOffsetImage(clockBase, 0, 
+        -(this.cellSize / 3), button);
+    return clock;
+  }
+  
+  // Gets the image for the restart button
+  WorldImage restartImage() {
+    WorldImage outline = new CircleImage(this.cellSize / 2, 
+        OutlineMode.SOLID, Color.white);
+    WorldImage center = new CircleImage(this.cellSize / 3, 
+        OutlineMode.SOLID, new Color(80, 155, 0, 255));
+    WorldImage cutoutBase = new CircleImage(this.cellSize / 2, 
+        OutlineMode.SOLID, new Color(80, 155, 0, 255));
+    WorldImage cutout = new CropImage(this.cellSize / 2, 
+        this.cellSize / 2, this.cellSize, 
+        this.cellSize, cutoutBase);
+    WorldImage circleBase = new OverlayImage(center, outline);
+    WorldImage circle = new OverlayOffsetImage(cutout, (-this.cellSize / 2) - 2,
+        (-this.cellSize / 2) - 2, circleBase);
+    WorldImage arrowHead = new TriangleImage(new Posn(0, 0), 
+        new Posn((this.cellSize / 2), 0), 
+        new Posn((this.cellSize / 4), (this.cellSize / 4)),
+        OutlineMode.SOLID, Color.white);
+    WorldImage button = new OverlayOffsetImage(arrowHead, -(this.cellSize / 6),
+        (this.cellSize / 6), circle);
+    WorldImage buttonRotated = new RotateImage(button, 45);
+    buttonRotated = new CropImage((this.cellSize / 5), 0, 
+        (this.cellSize + 2), ((6 * this.cellSize) / 5),
+        buttonRotated);
+    return buttonRotated;
+  }
+}
@@ -0,0 +1,64 @@
+import javalib.worldimages.*;
+
+// the size of a game and of the cells it is drawn with, which never change once made, so
+// any number of games of different sizes can be played side by side
+class BoardConfig {
+  int width;
+  int height;
+  int mines;
+  int cellSize;
+
+  // the size of the window the board is fitted into, in pixels
+  static int FIT = 650;
+
+  // the game the window starts with: 18 by 18 with 40 mines
+  static BoardConfig STANDARD = new BoardConfig(18, 18, 40);
+
+  BoardConfig(int width, int height, int mines, int cellSize) {
+    this.width = width;
+    this.height = height;
+    this.mines = mines;
+    this.cellSize = cellSize;
+  }
+
+  // a game of the given size, with cells as big as they can be for the longer side to
+  // fit in the window
+  BoardConfig(int width, int height, int mines) {
+    this(width, height, mines, Math.max(1, BoardConfig.FIT / Math.max(width, height)));
+  }
+
+  // Returns the size of the numbers drawn on cells, which shrink as the board grows
+  int fontSize() {
+    return new Utils().getFontSize(Math.max(this.width, this.height));
+  }
+
+  // Returns the width of the board in pixels
+  int boardWidth() {
+    return this.width * this.cellSize;
+  }
+
+  // Returns the height of the board in pixels
+  int boardHeight() {
+    return this.height * this.cellSize;
+  }
+
+  // Returns the width of the window showing this game
+  int windowWidth() {
+    return this.boardWidth() + this.cellSize;
+  }
+
+  // Returns the height of the window showing this game, which leaves room for the info
+  // bar above the board
+  int windowHeight() {
+    return this.boardHeight() + (7 * this.cellSize);
+  }
+
+  // Returns the images this game is drawn with
+  BoardAssets assets() {
+    return BoardAssets.of(this.cellSize, this.fontSize());
+  }
+
+  public String toString() {
+    return this.width + "x" + this.height + "/" + this.mines + " at " + this.cellSize + "px";
+  }
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+// a copy of what a player can see of a game kept somewhere else, such as by a spectator,
+// kept up to date by the deltas from a DeltaWriter
+// Each cell holds what Board.seen gives for it.
+class BoardCopy {
+  int width;
+  int height;
+  int numMines;
+  int numFlagged;
+  GameStatus status;
+  byte[] cells;
+  byte[] delta;
+  int pos;
+
+  BoardCopy() {
+    this.width = 0;
+    this.height = 0;
+    this.numMines = 0;
+    this.numFlagged = 0;
+    this.status = GameStatus.READY;
+    this.cells = new byte[0];
+    this.delta = new byte[0];
+    this.pos = 0;
+  }
+
+  // Returns what can be seen of the cell at idx
+  int seen(int idx) {
+    return this.cells[idx];
+  }
+
+  // Returns the number of flags left to place
+  int flags() {
+    return this.numMines - this.numFlagged;
+  }
+
+  // Returns true if this copy shows every cell of the given board as its player sees it
+  boolean matches(Board board) {
+    if ((board.width != this.width) || (board.height != this.height)) {
+      return false;
+    }
+    for (int i = 0; i < board.size; i = i + 1) {
+      if (board.seen(i) != this.cells[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // EFFECT: makes the changes in the given delta to this copy
+  void apply(byte[] delta) {
+    this.delta = delta;
+    this.pos = 0;
+    while (this.pos < delta.length) {
+      int tag = this.readByte();
+      if (tag == DeltaWriter.RESET) {
+        this.reset((int) this.readVarint(), (int) this.readVarint(), (int) this.readVarint());
+      }
+      else if (tag == DeltaWriter.REVEALED) {
+        this.readRuns(true);
+      }
+      else if (tag == DeltaWriter.MINES) {
+        this.readRuns(false);
+      }
+      else if ((tag == DeltaWriter.FLAG) || (tag == DeltaWriter.UNFLAG)) {
+        int idx = this.readCell();
+        boolean on = tag == DeltaWriter.FLAG;
+        if (on != (this.cells[idx] == Board.SEEN_FLAG)) {
+          this.cells[idx] = (byte) (on ? Board.SEEN_FLAG : Board.SEEN_HIDDEN);
+          this.numFlagged = this.numFlagged + (on ? 1 : -1);
+        }
+      }
+      else if (tag == DeltaWriter.MINE_COUNT) {
+        this.numMines = (int) this.readVarint();
+      }
+      else if (tag == DeltaWriter.STATUS) {
+        int status = this.readByte();
+        if (status >= GameStatus.values().length) {
+          throw new IllegalArgumentException("unknown status " + status);
+        }
+        this.status = GameStatus.values()[status];
+      }
+      else {
+        throw new IllegalArgumentException("unknown delta event " + tag);
+      }
+    }
+  }
+
+  // EFFECT: starts this copy again on an empty board of the given size
+  void reset(int width, int height, int numMines) {
+    if ((width < 0) || (height < 0) || (((long) width * height) > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("bad board size " + width + "x" + height);
+    }
+    if ((this.width != width) || (this.height != height)) {
+      this.cells = new byte[width * height];
+    }
+    Arrays.fill(this.cells, (byte) Board.SEEN_HIDDEN);
+    this.width = width;
+    this.height = height;
+    this.numMines = numMines;
+    this.numFlagged = 0;
+    this.status = GameStatus.READY;
+  }
+
+  // EFFECT: reads runs of cells and shows each one as what follows the runs, or as a
+  // mine if nothing follows
+  // A flag on a mine shown when the game is lost still counts, as it does in the game
+  void readRuns(boolean shown) {
+    int runs = (int) this.readVarint();
+    int[] starts = new int[runs];
+    int[] lengths = new int[runs];
+    int end = 0;
+    for (int i = 0; i < runs; i = i + 1) {
+      starts[i] = end + (int) this.readVarint();
+      lengths[i] = (int) this.readVarint();
+      end = starts[i] + lengths[i];
+      if ((starts[i] < 0) || (end > this.cells.length) || (end < starts[i])) {
+        throw new IllegalArgumentException("cells off the board");
+      }
+    }
+    int n = 0;
+    int pair = 0;
+    for (int i = 0; i < runs; i = i + 1) {
+      for (int idx = starts[i]; idx < (starts[i] + lengths[i]); idx = idx + 1) {
+        int shows = Board.SEEN_MINE;
+        if (shown && ((n % 2) == 0)) {
+          pair = this.readByte();
+          shows = pair & 0x0F;
+        }
+        else if (shown) {
+          shows = pair >>> 4;
+        }
+        this.cells[idx] = (byte) shows;
+        n = n + 1;
+      }
+    }
+  }
+
+  // Returns the next cell index in the delta, which must be on the board
+  int readCell() {
+    long idx = this.readVarint();
+    if (idx >= this.cells.length) {
+      throw new IllegalArgumentException("cell " + idx + " is off the board");
+    }
+    return (int) idx;
+  }
+
+  // Returns the next byte in the delta
+  int readByte() {
+    if (this.pos >= this.delta.length) {
+      throw new IllegalArgumentException("delta ends part way through an event");
+    }
+    int b = this.delta[this.pos] & 0xFF;
+    this.pos = this.pos + 1;
+    return b;
+  }
+
+  // Returns the next varint in the delta
+  long readVarint() {
+    long value = 0;
+    int shift = 0;
+    int b = this.readByte();
+    while ((b & 0x80) != 0) {
+      value = value | ((long) (b & 0x7F) << shift);
+      shift = shift + 7;
+      b = this.readByte();
+    }
+    return value | ((long) b << shift);
+  }
+}
@@ -0,0 +1,196 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// keeps a few boards ready for each kind of game, so starting a new game only has to
+// swap one in instead of building it while the window waits
+// Boards are made on one background thread, which tops a kind up each time one of its
+// boards is taken, and boards given back are cleared and reused rather than thrown away.
+// Boards that need no guessing are made for a first click in the middle of the board.
+class BoardPool {
+  int capacity;
+  ConcurrentHashMap<String, ArrayBlockingQueue<ReadyBoard>> ready;
+  ConcurrentHashMap<String, ConcurrentLinkedQueue<Board>> spare;
+  ConcurrentHashMap<String, NoGuessGenerator> generators;
+  ExecutorService producer;
+  SplittableRandom seeds;
+  LongAdder hits;
+  LongAdder misses;
+  LongAdder refills;
+  AtomicLong lagNanos;
+  AtomicLong maxLagNanos;
+
+  // a pool that keeps up to capacity boards of each kind, with seeds from the given one
+  BoardPool(int capacity, long seed) {
+    this.capacity = capacity;
+    this.ready = new ConcurrentHashMap<String, ArrayBlockingQueue<ReadyBoard>>();
+    this.spare = new ConcurrentHashMap<String, ConcurrentLinkedQueue<Board>>();
+    this.generators = new ConcurrentHashMap<String, NoGuessGenerator>();
+    this.producer = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "board-pool");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.seeds = new SplittableRandom(seed);
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.refills = new LongAdder();
+    this.lagNanos = new AtomicLong();
+    this.maxLagNanos = new AtomicLong();
+  }
+
+  // Returns the name of the kind of board with the given size, mines and mode
+  String key(int width, int height, int mines, boolean noGuess) {
+    return width + "x" + height + "/" + mines + (noGuess ? "/no-guess" : "/random");
+  }
+
+  // Returns a board of the given kind that is ready to play, or null if there are none
+  ReadyBoard take(int width, int height, int mines, boolean noGuess) {
+    ReadyBoard board = this.boards(width, height, mines, noGuess).poll();
+    if (board == null) {
+      this.misses.increment();
+    }
+    else {
+      this.hits.increment();
+    }
+    return board;
+  }
+
+  // Returns a board of the same size as current with the given mines and mode that is
+  // ready to play, keeping current to be reused if there is one, or null if there are
+  // none yet, and asks for the kind to be topped up either way
+  ReadyBoard swap(Board current, int mines, boolean noGuess) {
+    ReadyBoard board = this.take(current.width, current.height, mines, noGuess);
+    if (board != null) {
+      this.recycle(current);
+    }
+    this.prepare(current.width, current.height, mines, noGuess);
+    return board;
+  }
+
+  // EFFECT: asks the background thread to fill up the boards of the given kind
+  void prepare(int width, int height, int mines, boolean noGuess) {
+    String key = this.key(width, height, mines, noGuess);
+    ArrayBlockingQueue<ReadyBoard> boards = this.boards(width, height, mines, noGuess);
+    long asked = System.nanoTime();
+    this.producer.execute(() -> this.refill(key, boards, width, height, mines, noGuess, asked));
+  }
+
+  // Returns the boards ready for the given kind of game
+  ArrayBlockingQueue<ReadyBoard> boards(int width, int height, int mines, boolean noGuess) {
+    return this.ready.computeIfAbsent(this.key(width, height, mines, noGuess),
+        k -> new ArrayBlockingQueue<ReadyBoard>(this.capacity));
+  }
+
+  // EFFECT: keeps the given board, which is no longer being played, to be reused
+  void recycle(Board board) {
+    this.spare.computeIfAbsent(board.width + "x" + board.height,
+        k -> new ConcurrentLinkedQueue<Board>()).offer(board);
+  }
+
+  // EFFECT: makes boards of the given kind until there are capacity of them, recording
+  // how long after asked the kind was full again
+  void refill(String key, ArrayBlockingQueue<ReadyBoard> boards, int width, int height,
+      int mines, boolean noGuess, long asked) {
+    while (boards.remainingCapacity() > 0) {
+      boards.offer(this.make(key, width, height, mines, noGuess));
+    }
+    long lag = System.nanoTime() - asked;
+    this.refills.increment();
+    this.lagNanos.addAndGet(lag);
+    this.maxLagNanos.accumulateAndGet(lag, Math::max);
+  }
+
+  // Returns a new board of the given kind, reusing a spare board of its size if there is
+  // one, the same way a game would make it from the next seed
+  ReadyBoard make(String key, int width, int height, int mines, boolean noGuess) {
+    ConcurrentLinkedQueue<Board> spares = this.spare.get(width + "x" + height);
+    Board board = null;
+    if (spares != null) {
+      board = spares.poll();
+    }
+    if (board == null) {
+      board = new Board(width, height);
+    }
+    long begin = Metrics.start();
+    long seed = this.seeds.nextLong();
+    SplittableRandom rand = new SplittableRandom(seed);
+    board.clear();
+    int start = -1;
+    long candidate = 0;
+    if (noGuess) {
+      start = board.index(height / 2, width / 2);
+      NoGuessGenerator gen = this.generators.computeIfAbsent(key,
+          k -> new NoGuessGenerator(width, height, mines, 1));
+      if (gen.generate(board, rand.nextLong(), start)) {
+        candidate = gen.result;
+      }
+      else {
+        start = -1;
+      }
+    }
+    else {
+      board.setMines(mines, rand);
+      board.setContacts();
+    }
+    Metrics.GENERATE.stop(begin);
+    return new ReadyBoard(board, seed, rand, start, candidate);
+  }
+
+  // Returns the fraction of boards asked for that were ready
+  double hitRate() {
+    long total = this.hits.sum() + this.misses.sum();
+    if (total == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.hits.sum() / total;
+    }
+  }
+
+  // Returns the mean time in milliseconds from a board being taken to its kind being full
+  // again
+  double meanLagMillis() {
+    long count = this.refills.sum();
+    if (count == 0) {
+      return 0;
+    }
+    else {
+      return this.lagNanos.get() / 1e6 / count;
+    }
+  }
+
+  // EFFECT: waits until the background thread has made every board asked for so far
+  void settle() {
+    try {
+      this.producer.submit(() -> { }).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // EFFECT: stops the background thread once it has made the boards already asked for
+  void shutdown() {
+    this.producer.execute(() -> {
+      for (NoGuessGenerator gen : this.generators.values()) {
+        gen.shutdown();
+      }
+    });
+    this.producer.shutdown();
+  }
+
+  public String toString() {
+    return this.hits.sum() + " hits, " + this.misses.sum() + " misses, mean lag "
+        + this.meanLagMillis() + "ms, max lag " + (this.maxLagNanos.get() / 1e6) + "ms";
+  }
+}
@@ -0,0 +1,105 @@
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+// draws the cells of a Board where each one sits in the game window
+class BoardView {
+  int originX;
+  int originY;
+  int cellSize;
+  BoardAssets assets;
+  
+  // a view of the board that is offset and scaled by the given amounts, where
+  // (originX, originY) is the center of the top left cell, drawn with the given assets
+  BoardView(int originX, int originY, int cellSize, BoardAssets assets) {
+    this.originX = originX;
+    this.originY = originY;
+    this.cellSize = cellSize;
+    this.assets = assets;
+  }
+  
+  // a view of the board that is offset and scaled by the given amounts, drawn with the
+  // numbers the standard game uses
+  BoardView(int originX, int originY, int cellSize) {
+    this(originX, originY, cellSize, 
+        BoardAssets.of(cellSize, BoardConfig.STANDARD.fontSize()));
+  }
+  
+  // the view used by the window for a game with the given configuration, with the board
+  // sitting below the info bar
+  BoardView(BoardConfig config) {
+    this(config.cellSize, 3 * config.cellSize, config.cellSize, config.assets());
+  }
+  
+  // the view used by the window for the standard game
+  BoardView() {
+    this(BoardConfig.STANDARD);
+  }
+  
+  // Returns the x coordinate of the center of the cell at idx
+  int cellX(Board board, int idx) {
+    return (board.col(idx) * this.cellSize) + this.originX;
+  }
+  
+  // Returns the y coordinate of the center of the cell at idx
+  int cellY(Board board, int idx) {
+    return (board.row(idx) * this.cellSize) + this.originY;
+  }
+  
+  // Returns the index of the cell drawn under the given position, or -1 if there is none
+  int cellAt(Board board, Posn p) {
+    int col = this.lineAt(p.x, this.originX, board.width);
+    int row = this.lineAt(p.y, this.originY, board.height);
+    if ((col < 0) || (row < 0)) {
+      return -1;
+    }
+    else {
+      return board.index(row, col);
+    }
+  }
+  
+  // Returns which of the count cells along one axis, the first centered on origin,
+  // covers the given coordinate, or -1 if none of them do
+  // Each cell covers from half a cell before its center to half a cell after it, so
+  // neighbouring cells share an edge pixel when the cell size is even; like a scan from the
+  // top left, the lower cell gets that pixel
+  int lineAt(int pos, int origin, int count) {
+    int half = this.cellSize / 2;
+    int line = Math.floorDiv(pos - origin + half, this.cellSize);
+    if ((line > 0) && (pos <= (origin + ((line - 1) * this.cellSize) + half))) {
+      line = line - 1;
+    }
+    if ((line < 0) || (line >= count) 
+        || (pos < (origin + (line * this.cellSize) - half))
+        || (pos > (origin + (line * this.cellSize) + half))) {
+      return -1;
+    }
+    else {
+      return line;
+    }
+  }
+  
+  // Returns true if the given position is on the restart button in the info bar above
+  // the given board
+  // The bar is two cells tall, ending a cell above the centers of the top row, and the
+  // button sits a quarter of the way across it
+  boolean onRestart(Board board, Posn p) {
+    int left = (this.originX - this.cellSize) + ((this.cellSize * board.width) / 4);
+    return (p.x >= (left - (this.cellSize / 2)))
+        && (p.x <= (left + ((3 * this.cellSize) / 2)))
+        && (p.y >= (this.originY - (2 * this.cellSize)))
+        && (p.y <= (this.originY - this.cellSize));
+  }
+  
+  // draws the cell at idx
+  WorldImage drawCell(Board board, int idx) {
+    return this.assets.cellImage(board.isRevealed(idx), board.isMine(idx), 
+        board.isFlagged(idx), board.getContacts(idx), (board.row(idx) + board.col(idx)) % 2);
+  }
+  
+  // EFFECT: places the given image of each cell of the board onto the given scene
+  void drawBoard(Board board, WorldImage[] images, WorldScene world) {
+    for (int i = 0; i < board.size; i = i + 1) {
+      world.placeImageXY(images[i], this.cellX(board, i), this.cellY(board, i));
+    }
+  }
+}
@@ -0,0 +1,23 @@
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// one connection of a LoadClient, which always has exactly one command waiting on a reply
+class ClientSession {
+  SocketChannel channel;
+  ByteBuffer in;
+  ByteBuffer out;
+  int size;
+  int lastOp;
+  int status;
+  long sentAt;
+
+  ClientSession(SocketChannel channel, int size) {
+    this.channel = channel;
+    this.in = ByteBuffer.allocate(GameServer.REPLY_LENGTH + 4 + ((size + 1) / 2));
+    this.out = ByteBuffer.allocate(GameServer.NEW_LENGTH);
+    this.size = size;
+    this.lastOp = 0;
+    this.status = 0;
+    this.sentAt = 0;
+  }
+}
@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// a group of hidden frontier cells that share numbers, directly or through each other,
+// along with how many ways the numbers allow mines to be placed in them
+// ways[k] is the number of placements with k mines, and cellWays[i][k] the number of
+// those in which the i-th cell is a mine, both scaled so the largest of ways is 1
+class Component {
+  int[] cells;
+  int[][] constraintCells;
+  int[][] cellConstraints;
+  int[][] laterCells;
+  int[] need;
+  int[] firstPos;
+  int[] lastPos;
+  String key;
+  boolean exact;
+  double[] ways;
+  double[][] cellWays;
+
+  // a component of the given cells, in an order where each number's cells are close
+  // together, and numbers given as the positions of their cells and the mines they need
+  Component(int[] cells, int[][] constraintCells, int[] need) {
+    this.cells = cells;
+    this.constraintCells = constraintCells;
+    this.need = need;
+    this.firstPos = new int[need.length];
+    this.lastPos = new int[need.length];
+    int[] inCell = new int[cells.length];
+    for (int c = 0; c < need.length; c = c + 1) {
+      this.firstPos[c] = cells.length;
+      for (int pos : constraintCells[c]) {
+        inCell[pos] = inCell[pos] + 1;
+        this.firstPos[c] = Math.min(this.firstPos[c], pos);
+        this.lastPos[c] = Math.max(this.lastPos[c], pos);
+      }
+    }
+    this.cellConstraints = new int[cells.length][];
+    this.laterCells = new int[cells.length][];
+    for (int pos = 0; pos < cells.length; pos = pos + 1) {
+      this.cellConstraints[pos] = new int[inCell[pos]];
+      this.laterCells[pos] = new int[inCell[pos]];
+      inCell[pos] = 0;
+    }
+    for (int c = 0; c < need.length; c = c + 1) {
+      for (int pos : constraintCells[c]) {
+        int later = 0;
+        for (int other : constraintCells[c]) {
+          if (other > pos) {
+            later = later + 1;
+          }
+        }
+        this.cellConstraints[pos][inCell[pos]] = c;
+        this.laterCells[pos][inCell[pos]] = later;
+        inCell[pos] = inCell[pos] + 1;
+      }
+    }
+    this.key = this.makeKey();
+    this.exact = cells.length <= ProbabilityEngine.MAX_EXACT;
+  }
+
+  // Returns a string that is the same for two components exactly when they have the same
+  // cells and numbers, so one can stand in for the other
+  String makeKey() {
+    StringBuilder key = new StringBuilder();
+    for (int cell : this.cells) {
+      key.append(cell).append(',');
+    }
+    for (int c = 0; c < this.need.length; c = c + 1) {
+      key.append('|').append(this.need[c]);
+      for (int pos : this.constraintCells[c]) {
+        key.append(',').append(pos);
+      }
+    }
+    return key.toString();
+  }
+
+  // EFFECT: counts the placements of mines in this component, by mine count and by cell
+  // Works through the cells in order keeping, for each way the numbers still open could
+  // stand, how many placements reach it with each mine count; those are merged whenever
+  // they meet again, so the work grows with how many numbers are open at once rather than
+  // doubling with every cell. A pass back from the end then counts the completions of
+  // each, and joining the two gives the counts for each cell.
+  void solve() {
+    int n = this.cells.length;
+    ArrayList<ArrayList<int[]>> states = new ArrayList<ArrayList<int[]>>();
+    ArrayList<ArrayList<double[]>> forward = new ArrayList<ArrayList<double[]>>();
+    ArrayList<ArrayList<int[]>> edges = new ArrayList<ArrayList<int[]>>();
+    states.add(new ArrayList<int[]>());
+    forward.add(new ArrayList<double[]>());
+    states.get(0).add(Arrays.copyOf(this.need, this.need.length));
+    forward.get(0).add(new double[] {1});
+    for (int pos = 0; pos < n; pos = pos + 1) {
+      ArrayList<int[]> nextStates = new ArrayList<int[]>();
+      ArrayList<double[]> nextForward = new ArrayList<double[]>();
+      ArrayList<int[]> layerEdges = new ArrayList<int[]>();
+      HashMap<String, Integer> seen = new HashMap<String, Integer>();
+      for (int s = 0; s < states.get(pos).size(); s = s + 1) {
+        for (int mine = 0; mine <= 1; mine = mine + 1) {
+          int[] needs = this.step(states.get(pos).get(s), pos, mine);
+          if (needs != null) {
+            String state = this.stateKey(needs, pos + 1);
+            Integer to = seen.get(state);
+            if (to == null) {
+              to = nextStates.size();
+              seen.put(state, to);
+              nextStates.add(needs);
+              nextForward.add(new double[pos + 2]);
+            }
+            double[] from = forward.get(pos).get(s);
+            double[] into = nextForward.get(to);
+            for (int k = 0; k <= pos; k = k + 1) {
+              into[k + mine] = into[k + mine] + from[k];
+            }
+            layerEdges.add(new int[] {s, mine, to});
+          }
+        }
+      }
+      states.add(nextStates);
+      forward.add(nextForward);
+      edges.add(layerEdges);
+    }
+    this.ways = new double[n + 1];
+    this.cellWays = new double[n][n + 1];
+    if (states.get(n).isEmpty()) {
+      return;
+    }
+    this.ways = forward.get(n).get(0);
+    ArrayList<double[]> backward = new ArrayList<double[]>();
+    backward.add(new double[] {1});
+    for (int pos = n - 1; pos >= 0; pos = pos - 1) {
+      ArrayList<double[]> before = new ArrayList<double[]>();
+      for (int s = 0; s < states.get(pos).size(); s = s + 1) {
+        before.add(new double[n - pos + 1]);
+      }
+      for (int[] edge : edges.get(pos)) {
+        double[] after = backward.get(edge[2]);
+        double[] into = before.get(edge[0]);
+        for (int k = 0; k < after.length; k = k + 1) {
+          into[k + edge[1]] = into[k + edge[1]] + after[k];
+        }
+        if (edge[1] == 1) {
+          double[] from = forward.get(pos).get(edge[0]);
+          for (int a = 0; a < from.length; a = a + 1) {
+            for (int b = 0; b < after.length; b = b + 1) {
+              this.cellWays[pos][a + 1 + b] =
+                  this.cellWays[pos][a + 1 + b] + (from[a] * after[b]);
+            }
+          }
+        }
+      }
+      backward = before;
+    }
+    double scale = 0;
+    for (double w : this.ways) {
+      scale = Math.max(scale, w);
+    }
+    for (int k = 0; k <= n; k = k + 1) {
+      this.ways[k] = this.ways[k] / scale;
+      for (int pos = 0; pos < n; pos = pos + 1) {
+        this.cellWays[pos][k] = this.cellWays[pos][k] / scale;
+      }
+    }
+  }
+
+  // Returns the mines each number still needs once the cell at pos is given a mine or
+  // not, or null if that breaks a number: too many mines, too few cells left to reach
+  // it, or fewer mines than it shows once its last cell is decided
+  int[] step(int[] needs, int pos, int mine) {
+    int[] after = Arrays.copyOf(needs, needs.length);
+    for (int i = 0; i < this.cellConstraints[pos].length; i = i + 1) {
+      int c = this.cellConstraints[pos][i];
+      after[c] = after[c] - mine;
+      if ((after[c] < 0) || (after[c] > this.laterCells[pos][i])) {
+        return null;
+      }
+    }
+    return after;
+  }
+
+  // Returns a string for the mines still needed by the numbers that have some cells
+  // before pos and some at or after it, which is all that the rest of the cells depend on
+  // Numbers with no cells before pos still need all of theirs, and those with none after
+  // it need none
+  String stateKey(int[] needs, int pos) {
+    StringBuilder key = new StringBuilder();
+    for (int c = 0; c < needs.length; c = c + 1) {
+      if ((this.firstPos[c] < pos) && (this.lastPos[c] >= pos)) {
+        key.append(c).append('=').append(needs[c]).append(',');
+      }
+    }
+    return key.toString();
+  }
+
+  // EFFECT: gives each cell a chance of being a mine from the numbers around it alone, for
+  // components too big to count exactly
+  // Returns the number of mines these chances add up to
+  double estimate(double[] odds) {
+    double total = 0;
+    double[] chance = new double[this.cells.length];
+    for (int c = 0; c < this.need.length; c = c + 1) {
+      for (int pos : this.constraintCells[c]) {
+        chance[pos] = Math.max(chance[pos],
+            (double) this.need[c] / this.constraintCells[c].length);
+      }
+    }
+    for (int pos = 0; pos < this.cells.length; pos = pos + 1) {
+      odds[this.cells[pos]] = chance[pos];
+      total = total + chance[pos];
+    }
+    return total;
+  }
+}
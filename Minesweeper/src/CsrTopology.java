@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+// a board whose neighbours are looked up in a table: the cells touching the cell at idx
+// are adjacent[start[idx]] up to adjacent[start[idx + 1]], all in one array so finding
+// them never follows a pointer
+// Hex boards lay out each odd row half a cell to the right, so every cell touches two
+// cells in its own row and two in each of the rows above and below. Torus boards are
+// square boards whose edges wrap around, so every cell touches eight. Graphs are any
+// cells and links between them.
+class CsrTopology extends Topology {
+  int[] start;
+  int[] adjacent;
+
+  // a hex or torus board of the given size
+  CsrTopology(int kind, int width, int height) {
+    super(kind, width, height);
+    int[] around = new int[Topology.MAX_DEGREE];
+    this.start = new int[this.size + 1];
+    for (int i = 0; i < this.size; i = i + 1) {
+      this.start[i + 1] = this.start[i] + this.around(i, around);
+    }
+    this.adjacent = new int[this.start[this.size]];
+    for (int i = 0; i < this.size; i = i + 1) {
+      System.arraycopy(around, 0, this.adjacent, this.start[i], this.around(i, around));
+    }
+  }
+
+  // a graph of the given number of cells, where the two cells of each of the given links
+  // touch each other
+  CsrTopology(int size, int[][] links) {
+    super(Topology.GRAPH, size, 1);
+    this.start = new int[size + 1];
+    for (int[] link : links) {
+      if ((link.length != 2) || (link[0] == link[1]) || (link[0] < 0) || (link[1] < 0)
+          || (link[0] >= size) || (link[1] >= size)) {
+        throw new IllegalArgumentException("bad link " + Arrays.toString(link));
+      }
+      this.start[link[0] + 1] = this.start[link[0] + 1] + 1;
+      this.start[link[1] + 1] = this.start[link[1] + 1] + 1;
+    }
+    for (int i = 0; i < size; i = i + 1) {
+      if (this.start[i + 1] > Topology.MAX_DEGREE) {
+        throw new IllegalArgumentException("cell " + i + " has more than "
+            + Topology.MAX_DEGREE + " links");
+      }
+      this.start[i + 1] = this.start[i + 1] + this.start[i];
+    }
+    this.adjacent = new int[this.start[size]];
+    int[] filled = Arrays.copyOf(this.start, size);
+    for (int[] link : links) {
+      this.adjacent[filled[link[0]]] = link[1];
+      filled[link[0]] = filled[link[0]] + 1;
+      this.adjacent[filled[link[1]]] = link[0];
+      filled[link[1]] = filled[link[1]] + 1;
+    }
+  }
+
+  int neighbours(int idx, int[] out) {
+    int from = this.start[idx];
+    int count = this.start[idx + 1] - from;
+    System.arraycopy(this.adjacent, from, out, 0, count);
+    return count;
+  }
+
+  // EFFECT: writes the cells touching the cell at idx on a hex or torus board into the
+  // given array, each once, to build the table from
+  // Returns the number written
+  int around(int idx, int[] out) {
+    int row = idx / this.width;
+    int col = idx % this.width;
+    int count = 0;
+    for (int dr = -1; dr <= 1; dr = dr + 1) {
+      for (int dc = -1; dc <= 1; dc = dc + 1) {
+        int r = row + dr;
+        int c = col + dc;
+        boolean touches = (dr != 0) || (dc != 0);
+        if (this.kind == Topology.HEX) {
+          // an even row reaches up and down to the cell on its left, and a shifted odd row
+          // to the cell on its right
+          int skip = ((row % 2) == 0) ? 1 : -1;
+          touches = touches && ((dr == 0) || (dc != skip));
+          touches = touches && (r >= 0) && (r < this.height) && (c >= 0) && (c < this.width);
+        }
+        else {
+          r = (r + this.height) % this.height;
+          c = (c + this.width) % this.width;
+        }
+        int cell = (r * this.width) + c;
+        if (touches && (cell != idx) && !this.contains(out, count, cell)) {
+          out[count] = cell;
+          count = count + 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  // Returns true if cell is one of the first count cells in the given array
+  boolean contains(int[] cells, int count, int cell) {
+    for (int i = 0; i < count; i = i + 1) {
+      if (cells[i] == cell) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
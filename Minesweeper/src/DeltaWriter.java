@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+// writes down what each move changes on a game's board, for a copy of the board kept
+// elsewhere to catch up on without being sent the whole board again
+// Each delta is a run of events, each a tag byte and its numbers, all varints. The cells a
+// reveal uncovers are sorted and written as runs of neighbouring indices, each the gap
+// since the last run and its length, followed by what each cell shows, two cells to a
+// byte; so opening a region costs bytes in proportion to the region rather than the
+// board, and a single cell takes about four. Flags are written one cell at a time, the
+// status of the game whenever it changes, and the number of mines again once a board that
+// needs no guessing has them placed.
+class DeltaWriter {
+  byte[] bytes;
+  int length;
+  int[] cells;
+  int status;
+
+  // the tags of the events
+  static int RESET = 1;
+  static int REVEALED = 2;
+  static int MINES = 3;
+  static int FLAG = 4;
+  static int UNFLAG = 5;
+  static int STATUS = 6;
+  static int MINE_COUNT = 7;
+
+  DeltaWriter() {
+    this.bytes = new byte[64];
+    this.length = 0;
+    this.cells = new int[16];
+    this.status = GameStatus.READY.ordinal();
+  }
+
+  // EFFECT: writes the size of the given game's board and everything a player can see on
+  // it, for a copy that has not seen this board before
+  void snapshot(Game game) {
+    Board board = game.board;
+    this.newGame(game);
+    for (int i = board.flagged.nextSetBit(0); i >= 0; i = board.flagged.nextSetBit(i + 1)) {
+      this.flag(i, true);
+    }
+    int count = 0;
+    for (int i = board.revealed.nextSetBit(0); i >= 0; i = board.revealed.nextSetBit(i + 1)) {
+      count = this.addCell(count, i);
+    }
+    this.writeRuns(DeltaWriter.REVEALED, board, count, true);
+    this.writeStatus(game);
+  }
+
+  // EFFECT: writes that the given game has started again on an empty board
+  // The game's number of mines is written rather than its board's, since a board that
+  // needs no guessing has none until the first click
+  void newGame(Game game) {
+    this.writeByte(DeltaWriter.RESET);
+    this.writeVarint(game.board.width);
+    this.writeVarint(game.board.height);
+    this.writeVarint(game.numMines);
+    this.status = GameStatus.READY.ordinal();
+  }
+
+  // EFFECT: writes the number of mines the given game's board got when they were placed on
+  // the first click, which is fewer than asked for if the board had no room for them all
+  void placed(Game game) {
+    this.writeByte(DeltaWriter.MINE_COUNT);
+    this.writeVarint(game.board.numMines);
+  }
+
+  // EFFECT: writes the cells the last reveal in the given game uncovered, which are the
+  // given number at the start of board.lastRevealed, and every mine if it was lost
+  void revealed(Game game, int count) {
+    Board board = game.board;
+    for (int i = 0; i < count; i = i + 1) {
+      this.addCell(i, board.lastRevealed[i]);
+    }
+    Arrays.sort(this.cells, 0, count);
+    this.writeRuns(DeltaWriter.REVEALED, board, count, true);
+    if (game.mineHit) {
+      int mines = 0;
+      for (int i = board.mines.nextSetBit(0); i >= 0; i = board.mines.nextSetBit(i + 1)) {
+        mines = this.addCell(mines, i);
+      }
+      this.writeRuns(DeltaWriter.MINES, board, mines, false);
+    }
+    this.writeStatus(game);
+  }
+
+  // EFFECT: writes a flag being put on, or taken off, the cell at idx
+  void flag(int idx, boolean on) {
+    if (on) {
+      this.writeByte(DeltaWriter.FLAG);
+    }
+    else {
+      this.writeByte(DeltaWriter.UNFLAG);
+    }
+    this.writeVarint(idx);
+  }
+
+  // Returns everything written since the last call, and starts the next delta
+  byte[] take() {
+    byte[] delta = Arrays.copyOf(this.bytes, this.length);
+    this.length = 0;
+    return delta;
+  }
+
+  // EFFECT: puts the cell at idx at the given place in the list of cells to write
+  // Returns the number of cells in the list
+  int addCell(int at, int idx) {
+    if (at == this.cells.length) {
+      this.cells = Arrays.copyOf(this.cells, 2 * at);
+    }
+    this.cells[at] = idx;
+    return at + 1;
+  }
+
+  // EFFECT: writes the given number of cells at the start of the list, which are in
+  // order, as an event with the given tag, followed by what each shows if asked for
+  void writeRuns(int tag, Board board, int count, boolean shown) {
+    if (count == 0) {
+      return;
+    }
+    int runs = 1;
+    for (int i = 1; i < count; i = i + 1) {
+      if (this.cells[i] != (this.cells[i - 1] + 1)) {
+        runs = runs + 1;
+      }
+    }
+    this.writeByte(tag);
+    this.writeVarint(runs);
+    int end = 0;
+    int start = 0;
+    for (int i = 1; i <= count; i = i + 1) {
+      if ((i == count) || (this.cells[i] != (this.cells[i - 1] + 1))) {
+        this.writeVarint(this.cells[start] - end);
+        this.writeVarint(i - start);
+        end = this.cells[i - 1] + 1;
+        start = i;
+      }
+    }
+    if (shown) {
+      for (int i = 0; i < count; i = i + 2) {
+        int pair = board.seen(this.cells[i]);
+        if ((i + 1) < count) {
+          pair = pair | (board.seen(this.cells[i + 1]) << 4);
+        }
+        this.writeByte(pair);
+      }
+    }
+  }
+
+  // EFFECT: writes the status of the given game, if it has changed
+  void writeStatus(Game game) {
+    int status = game.status().ordinal();
+    if (status != this.status) {
+      this.writeByte(DeltaWriter.STATUS);
+      this.writeByte(status);
+      this.status = status;
+    }
+  }
+
+  // EFFECT: adds one byte to the delta
+  void writeByte(int b) {
+    if (this.length == this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, 2 * this.length);
+    }
+    this.bytes[this.length] = (byte) b;
+    this.length = this.length + 1;
+  }
+
+  // EFFECT: adds the given number, which is not negative, seven bits to a byte with the
+  // top bit set on every byte but the last
+  void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      this.writeByte((int) ((value & 0x7F) | 0x80));
+      value = value >>> 7;
+    }
+    this.writeByte((int) value);
+  }
+}
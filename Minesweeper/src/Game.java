@@ -0,0 +1,400 @@
+import java.util.SplittableRandom;
+
+// represents the rules and state of one game of Minesweeper, with no window attached
+class Game {
+  Topology topology;
+  int width;
+  int height;
+  int numMines;
+  Board board;
+  int flags;
+  boolean mineHit;
+  int numClicks;
+  int ticks;
+  int secs;
+  boolean gameStarted;
+  boolean gameFinished;
+  int version;
+  Leaderboard leaderboard;
+  long seed;
+  SplittableRandom rand;
+  Solver solver;
+  NoGuessGenerator generator;
+  BoardPool pool;
+  int readyStart;
+  long candidate;
+  Recorder recorder;
+  DeltaWriter deltas;
+
+  // a game on the given board that has already been set up
+  Game(Board board, int flags) {
+    this.topology = board.topology;
+    this.width = board.width;
+    this.height = board.height;
+    this.numMines = board.numMines;
+    this.board = board;
+    this.flags = flags;
+    this.mineHit = false;
+    this.numClicks = 0;
+    this.ticks = 0;
+    this.secs = 0;
+    this.gameStarted = false;
+    this.gameFinished = false;
+    this.version = 0;
+    this.leaderboard = new Leaderboard();
+    this.seed = 0;
+    this.rand = new SplittableRandom(0);
+    this.solver = null;
+    this.generator = null;
+    this.pool = null;
+    this.readyStart = -1;
+    this.candidate = 0;
+    this.recorder = null;
+    this.deltas = null;
+  }
+
+  // a new game on a square board of the given size whose mines are placed using the given
+  // seed
+  Game(int width, int height, int numMines, long seed) {
+    this(new SquareTopology(width, height), numMines, seed);
+  }
+
+  // a new game on a board of the given topology whose mines are placed using the given
+  // seed
+  Game(Topology topology, int numMines, long seed) {
+    this.topology = topology;
+    this.width = topology.width;
+    this.height = topology.height;
+    this.numMines = numMines;
+    this.flags = numMines;
+    this.mineHit = false;
+    this.numClicks = 0;
+    this.ticks = 0;
+    this.secs = 0;
+    this.gameStarted = false;
+    this.gameFinished = false;
+    this.version = 0;
+    this.leaderboard = new Leaderboard();
+    this.seed = seed;
+    this.rand = new SplittableRandom(seed);
+    this.solver = null;
+    this.generator = null;
+    this.pool = null;
+    this.readyStart = -1;
+    this.candidate = 0;
+    this.recorder = null;
+    this.deltas = null;
+    this.board = this.setBoard();
+    this.setMines();
+    this.setContacts();
+  }
+
+  // Creates a starting board
+  Board setBoard() {
+    return new Board(this.topology);
+  }
+
+  // EFFECT: sets some cells in the board as mines based on the number of mines
+  void setMines() {
+    this.board.setMines(this.numMines, this.rand);
+  }
+
+  // EFFECT: changes the contact count of each cell in the board
+  void setContacts() {
+    this.board.setContacts();
+  }
+
+  // EFFECT: starts again on a new board, taken from the pool if there is one ready, and
+  // otherwise made now from a seed from this game's generator
+  // The pool only makes square boards, so other games always make their own
+  void newGame() {
+    if (this.recorder != null) {
+      this.recorder.check(this);
+    }
+    ReadyBoard ready = null;
+    if ((this.pool != null) && (this.topology.kind == Topology.SQUARE)) {
+      ready = this.pool.swap(this.board, this.numMines, this.generator != null);
+    }
+    if (ready == null) {
+      this.restart(this.rand.nextLong());
+    }
+    else {
+      this.board = ready.board;
+      this.seed = ready.seed;
+      this.rand = ready.rand;
+      this.readyStart = ready.start;
+      this.candidate = ready.candidate;
+      this.resetState();
+    }
+  }
+
+  // EFFECT: starts again on a new board whose mines are placed using the given seed,
+  // reusing the arrays of the current board
+  // Boards that need no guessing depend on where the first click is, so their mines are
+  // only placed then
+  void restart(long seed) {
+    long start = Metrics.start();
+    this.seed = seed;
+    this.rand = new SplittableRandom(seed);
+    this.board.clear();
+    if (this.generator == null) {
+      this.setMines();
+      this.setContacts();
+    }
+    Metrics.GENERATE.stop(start);
+    this.readyStart = -1;
+    this.resetState();
+  }
+
+  // EFFECT: sets everything but the board back to how it is at the start of a game
+  void resetState() {
+    this.flags = this.numMines;
+    this.mineHit = false;
+    this.numClicks = 0;
+    this.ticks = 0;
+    this.secs = 0;
+    this.gameStarted = false;
+    this.gameFinished = false;
+    this.version = 0;
+    if (this.solver != null) {
+      this.solver.reset(this.board);
+    }
+    if (this.recorder != null) {
+      this.recorder.newGame(this);
+    }
+    if (this.deltas != null) {
+      this.deltas.newGame(this);
+    }
+  }
+
+  // EFFECT: starts a solver that keeps up with every reveal in this game, catching up on
+  // any cells already revealed
+  void useSolver() {
+    this.solver = new Solver(this.board);
+    this.solver.updateAll();
+  }
+
+  // EFFECT: makes every new game after this one on a board that can be solved without
+  // guessing, searched for by the given number of worker threads
+  void useNoGuess(int threads) {
+    if (this.generator == null) {
+      this.generator = new NoGuessGenerator(this.topology, this.numMines, threads);
+    }
+  }
+
+  // EFFECT: writes down everything that happens in this game and the games after it with
+  // the given recorder, starting with the board this game is on
+  void record(Recorder recorder) {
+    this.recorder = recorder;
+    recorder.start(this);
+  }
+
+  // EFFECT: writes what every move in this game and the games after it changes on the
+  // board with the given writer, starting with everything that can be seen of it now
+  void watch(DeltaWriter deltas) {
+    this.deltas = deltas;
+    deltas.snapshot(this);
+  }
+
+  // EFFECT: makes every new game after this one take its board from the given pool
+  void usePool(BoardPool pool) {
+    this.pool = pool;
+  }
+
+  // Returns where this game is up to
+  GameStatus status() {
+    if (this.mineHit) {
+      return GameStatus.LOST;
+    }
+    else if (this.gameFinished) {
+      return GameStatus.WON;
+    }
+    else if (this.gameStarted) {
+      return GameStatus.PLAYING;
+    }
+    else {
+      return GameStatus.READY;
+    }
+  }
+
+  // Returns the numbers a replay of this game has to match: its status, cells revealed,
+  // clicks, ticks, seconds, flags left, version and a hash of where its mines are
+  long[] summary() {
+    return new long[] {this.status().ordinal(), this.board.numRevealed, this.numClicks,
+      this.ticks, this.secs, this.flags, this.version,
+      this.board.mines.hashCode() & 0xFFFFFFFFL};
+  }
+
+  // Returns the name of the kind of game this is, which wins are ranked against
+  String kind() {
+    String shape = "";
+    if (this.topology.kind != Topology.SQUARE) {
+      shape = this.topology.name() + " ";
+    }
+    return shape + this.width + "x" + this.height + "/" + this.numMines
+        + (this.generator != null ? "/no-guess" : "/random");
+  }
+
+  // Returns the number of safe cells still to be revealed
+  int cellsLeft() {
+    return this.board.size - this.board.numMines - this.board.numRevealed;
+  }
+
+  // EFFECT: reveals the cell at the given row and column, spreading out from it
+  // Returns the number of cells newly revealed
+  int reveal(int row, int col) {
+    return this.revealAt(this.board.index(row, col), true);
+  }
+
+  // EFFECT: flags or unflags the cell at the given row and column
+  // Returns true if the flag changed
+  boolean toggleFlag(int row, int col) {
+    return this.toggleFlagAt(this.board.index(row, col));
+  }
+
+  // EFFECT: reveals the cell at idx, spreading out from it if asked to
+  // The first reveal of a game moves any mines away from the cell so it is safe, or when
+  // the game needs no guessing, places the mines for a board that can be solved from it
+  // Returns the number of cells newly revealed, which are left at the start of
+  // board.lastRevealed
+  int revealAt(int idx, boolean spread) {
+    if (this.gameFinished || this.board.isFlagged(idx) || this.board.isRevealed(idx)) {
+      return 0;
+    }
+    if ((this.numClicks == 0) && (this.generator != null)) {
+      if (idx != this.readyStart) {
+        this.placeNoGuess(idx);
+      }
+    }
+    else if ((this.numClicks == 0)
+        && ((this.board.getContacts(idx) != 0) || this.board.isMine(idx))) {
+      this.board.clearAround(idx, this.rand);
+      this.version = this.version + 1;
+    }
+    if (this.recorder != null) {
+      this.recorder.reveal(idx, spread);
+    }
+    return this.uncover(idx, spread);
+  }
+
+  // EFFECT: reveals the cell at idx, which is neither flagged nor revealed, as it is now,
+  // spreading out from it if asked to
+  // Returns the number of cells newly revealed
+  int uncover(int idx, boolean spread) {
+    this.gameStarted = true;
+    this.numClicks = this.numClicks + 1;
+    long start = Metrics.start();
+    int count;
+    if (this.board.isMine(idx)) {
+      count = this.board.reveal(idx);
+      this.board.revealMines();
+      this.mineHit = true;
+    }
+    else if (spread) {
+      count = this.board.reveal(idx);
+    }
+    else {
+      this.board.markRevealed(idx);
+      this.board.lastRevealed[0] = idx;
+      count = 1;
+    }
+    Metrics.REVEAL.stop(start);
+    if ((this.solver != null) && !this.mineHit) {
+      this.solver.update(count);
+    }
+    this.checkIfDone();
+    if (this.deltas != null) {
+      this.deltas.revealed(this, count);
+    }
+    return count;
+  }
+
+  // EFFECT: places the mines for a board that can be solved without guessing from a first
+  // click on the cell at idx, or for an ordinary board if the generator gives up
+  void placeNoGuess(int idx) {
+    long start = Metrics.start();
+    if (this.generator.generate(this.board, this.rand.nextLong(), idx)) {
+      this.candidate = this.generator.result;
+      if (this.recorder != null) {
+        this.recorder.placed(this.candidate, idx);
+      }
+    }
+    else {
+      this.setMines();
+      this.setContacts();
+      this.board.clearAround(idx, this.rand);
+      if (this.recorder != null) {
+        this.recorder.fallback(idx);
+      }
+    }
+    Metrics.GENERATE.stop(start);
+    this.version = this.version + 1;
+    if (this.deltas != null) {
+      this.deltas.placed(this);
+    }
+  }
+
+  // EFFECT: flags or unflags the cell at idx, keeping count of the flags left
+  // Returns true if the flag changed, which it cannot once the cell is revealed or the
+  // game is over
+  boolean toggleFlagAt(int idx) {
+    if (this.gameFinished || this.board.isRevealed(idx)) {
+      return false;
+    }
+    if (this.board.isFlagged(idx)) {
+      this.flags = this.flags + 1;
+    }
+    else {
+      this.flags = this.flags - 1;
+    }
+    this.board.toggleFlag(idx);
+    if (this.recorder != null) {
+      this.recorder.flag(idx);
+    }
+    if (this.deltas != null) {
+      this.deltas.flag(idx, this.board.isFlagged(idx));
+    }
+    return true;
+  }
+
+  // EFFECT: moves the clock forward one tick, counting a second every 17 ticks
+  // Returns true if the time shown or the status of the game changed
+  boolean tick() {
+    if (this.recorder != null) {
+      this.recorder.tick();
+    }
+    if (this.gameStarted && !(this.gameFinished)) {
+      this.ticks = this.ticks + 1;
+    }
+    boolean wasFinished = this.gameFinished;
+    boolean newSecond = this.convertToSecs();
+    this.checkIfDone();
+    return newSecond || (wasFinished != this.gameFinished);
+  }
+
+  // EFFECT: changes the secs field based on the ticks
+  // Returns true if a second was added
+  boolean convertToSecs() {
+    if (!this.gameFinished && ((this.ticks != 0) && (this.ticks % 17 == 0))) {
+      this.secs = this.secs + 1;
+      return true;
+    }
+    else {
+      return false;
+    }
+  }
+
+  // EFFECT: finishes the game once a mine is hit or every safe cell is revealed,
+  // recording the time of a win once on the leaderboard, if there is one
+  void checkIfDone() {
+    if (this.mineHit) {
+      this.gameFinished = true;
+    }
+    else if (!this.gameFinished && this.board.allSafeRevealed()) {
+      this.gameFinished = true;
+      if (this.leaderboard != null) {
+        this.leaderboard.record(this.kind(), this.secs);
+      }
+    }
+  }
+}
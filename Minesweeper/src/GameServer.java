@@ -0,0 +1,388 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+// one player connected to a GameServer, playing their own game
+// Commands are read into a small fixed buffer and replies written to another, so a session
+// costs the same however much a player sends; only a reply with the whole board needs
+// more, and that is let go as soon as it has been sent.
+class Session {
+  SocketChannel channel;
+  Game game;
+  ByteBuffer in;
+  ByteBuffer out;
+  ByteBuffer board;
+
+  Session(SocketChannel channel, Game game) {
+    this.channel = channel;
+    this.game = game;
+    this.in = ByteBuffer.allocate(GameServer.NEW_LENGTH * 2);
+    this.out = ByteBuffer.allocate(GameServer.REPLY_LENGTH * 4);
+    this.board = null;
+  }
+}
+
+// plays games for any number of players connected over TCP, all from one thread
+// A Selector watches every connection, and each command is handled to the end as soon as
+// it has arrived, so no session ever holds a thread. A session that sends faster than it
+// reads its replies is not read from again until they have gone out.
+// Every command is one byte followed by its numbers, big endian:
+//   NEW     width (2 bytes), height (2), mines (4), seed (8)
+//   REVEAL  cell index (4)
+//   FLAG    cell index (4)
+//   RESTART
+//   STATE
+// and every reply is the command's byte, the status of the game (or ERROR), a count (4),
+// the flags left (4) and the safe cells left (4). The count is the number of cells a
+// reveal uncovered, or 1 if a flag changed. STATE's reply is followed by the number of
+// cells (4) and a nibble for each, two to a byte, holding what Board.seen gives for it.
+class GameServer {
+  ServerSocketChannel server;
+  Selector selector;
+  BoardConfig config;
+  SplittableRandom seeds;
+  Thread thread;
+  volatile boolean running;
+  int sessions;
+  long commands;
+  SelectionKey accepting;
+  long acceptPausedUntil;
+  long acceptFailures;
+
+  // the bytes starting each command
+  static int NEW = 1;
+  static int REVEAL = 2;
+  static int FLAG = 3;
+  static int RESTART = 4;
+  static int STATE = 5;
+
+  // the status sent back for a command that could not be carried out
+  static int ERROR = 255;
+
+  // the lengths of the longest command and of a reply
+  static int NEW_LENGTH = 17;
+  static int REPLY_LENGTH = 14;
+
+  // the most cells a session's board may have
+  static int MAX_CELLS = 1 << 16;
+
+  // how long to stop accepting connections for after one could not be accepted, such as
+  // when the process has run out of file descriptors, in milliseconds
+  static long ACCEPT_BACKOFF = 100;
+
+  // a server on the given port of this machine, or any free port if it is 0, whose
+  // sessions start on games of the given configuration
+  GameServer(int port, BoardConfig config, long seed) throws IOException {
+    this.selector = Selector.open();
+    this.server = ServerSocketChannel.open();
+    this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+    this.server.configureBlocking(false);
+    this.accepting = this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    this.config = config;
+    this.seeds = new SplittableRandom(seed);
+    this.thread = null;
+    this.running = false;
+    this.sessions = 0;
+    this.commands = 0;
+    this.acceptPausedUntil = 0;
+    this.acceptFailures = 0;
+  }
+
+  // Returns the port this server is listening on
+  int port() throws IOException {
+    return ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+  }
+
+  // EFFECT: starts serving on a background thread
+  void start() {
+    this.running = true;
+    this.thread = new Thread(() -> this.serve(), "game-server");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  // EFFECT: stops serving, closing every session, and waits for the thread to finish
+  void close() {
+    this.running = false;
+    this.selector.wakeup();
+    try {
+      this.thread.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // EFFECT: handles connections and commands until the server is closed
+  void serve() {
+    try {
+      while (this.running) {
+        this.selector.select(this.acceptWait());
+        Iterator<SelectionKey> ready = this.selector.selectedKeys().iterator();
+        while (ready.hasNext()) {
+          SelectionKey key = ready.next();
+          ready.remove();
+          this.handle(key);
+        }
+      }
+      for (SelectionKey key : this.selector.keys()) {
+        key.channel().close();
+      }
+      this.selector.close();
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("game server stopped", e);
+    }
+  }
+
+  // EFFECT: accepts a connection, reads commands or sends replies, whichever the given key
+  // is ready for, closing the session if its connection is lost or it sends nonsense
+  // Nothing one connection does, and no connection that cannot be accepted, stops the
+  // server for the others
+  void handle(SelectionKey key) {
+    if (!key.isValid()) {
+      return;
+    }
+    if (key.isAcceptable()) {
+      try {
+        this.accept();
+      }
+      catch (IOException e) {
+        this.pauseAccepting(e);
+      }
+      return;
+    }
+    Session session = (Session) key.attachment();
+    try {
+      if (key.isReadable()) {
+        if (session.channel.read(session.in) < 0) {
+          this.close(key);
+          return;
+        }
+        this.process(key, session);
+      }
+      else if (key.isWritable()) {
+        if (this.send(key, session)) {
+          this.process(key, session);
+        }
+      }
+    }
+    catch (IOException | IllegalArgumentException e) {
+      this.close(key);
+    }
+  }
+
+  // EFFECT: accepts every waiting connection as a session on a new game
+  void accept() throws IOException {
+    SocketChannel channel = this.server.accept();
+    while (channel != null) {
+      try {
+        channel.configureBlocking(false);
+        channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+        Game game = new Game(this.config.width, this.config.height, this.config.mines,
+            this.seeds.nextLong());
+        // server games keep no record of their times, since every kind of board a player
+        // asks for would add to it for as long as the server runs
+        game.leaderboard = null;
+        channel.register(this.selector, SelectionKey.OP_READ, new Session(channel, game));
+      }
+      catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      this.sessions = this.sessions + 1;
+      channel = this.server.accept();
+    }
+  }
+
+  // EFFECT: stops accepting connections for a while after the given failure to accept
+  // one, which would most likely fail again straight away, leaving them waiting in the
+  // backlog until then
+  void pauseAccepting(IOException e) {
+    this.acceptFailures = this.acceptFailures + 1;
+    System.err.println("game server: could not accept a connection, pausing for "
+        + GameServer.ACCEPT_BACKOFF + "ms: " + e);
+    this.accepting.interestOps(0);
+    this.acceptPausedUntil = System.nanoTime() + (GameServer.ACCEPT_BACKOFF * 1000000);
+  }
+
+  // EFFECT: starts accepting connections again if a pause is over
+  // Returns how long to wait for the next ready key, in milliseconds, which is until the
+  // end of a pause, or 0 to wait as long as it takes
+  long acceptWait() {
+    if (this.acceptPausedUntil == 0) {
+      return 0;
+    }
+    long left = (this.acceptPausedUntil - System.nanoTime()) / 1000000;
+    if (left > 0) {
+      return left;
+    }
+    this.accepting.interestOps(SelectionKey.OP_ACCEPT);
+    this.acceptPausedUntil = 0;
+    return 0;
+  }
+
+  // EFFECT: closes the session behind the given key
+  void close(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    }
+    catch (IOException e) {
+      // the connection is gone either way
+    }
+    this.sessions = this.sessions - 1;
+  }
+
+  // EFFECT: carries out every whole command the session has sent, while there is room
+  // for the replies, then sends what it can
+  void process(SelectionKey key, Session session) throws IOException {
+    ByteBuffer in = session.in;
+    in.flip();
+    while ((session.board == null) && (in.remaining() > 0)
+        && (session.out.remaining() >= GameServer.REPLY_LENGTH)) {
+      int length = this.commandLength(in.get(in.position()));
+      if (in.remaining() < length) {
+        break;
+      }
+      this.command(session, in);
+    }
+    in.compact();
+    this.send(key, session);
+  }
+
+  // Returns the length of the command starting with the given byte
+  int commandLength(int op) {
+    if (op == GameServer.NEW) {
+      return GameServer.NEW_LENGTH;
+    }
+    else if ((op == GameServer.REVEAL) || (op == GameServer.FLAG)) {
+      return 5;
+    }
+    else if ((op == GameServer.RESTART) || (op == GameServer.STATE)) {
+      return 1;
+    }
+    else {
+      throw new IllegalArgumentException("unknown command " + op);
+    }
+  }
+
+  // EFFECT: carries out the command at the start of the given buffer on the session's
+  // game, and adds the reply to the session's replies
+  void command(Session session, ByteBuffer in) {
+    this.commands = this.commands + 1;
+    int op = in.get();
+    Game game = session.game;
+    int count = 0;
+    boolean ok = true;
+    if (op == GameServer.NEW) {
+      int width = in.getShort() & 0xFFFF;
+      int height = in.getShort() & 0xFFFF;
+      int mines = in.getInt();
+      long seed = in.getLong();
+      ok = (width > 0) && (height > 0) && ((width * height) <= GameServer.MAX_CELLS)
+          && (mines >= 0) && (mines < (width * height));
+      if (ok) {
+        game = new Game(width, height, mines, seed);
+        game.leaderboard = null;
+        session.game = game;
+      }
+    }
+    else if ((op == GameServer.REVEAL) || (op == GameServer.FLAG)) {
+      int idx = in.getInt();
+      ok = (idx >= 0) && (idx < game.board.size);
+      if (ok && (op == GameServer.REVEAL)) {
+        count = game.revealAt(idx, true);
+      }
+      else if (ok && game.toggleFlagAt(idx)) {
+        count = 1;
+      }
+    }
+    else if (op == GameServer.RESTART) {
+      game.newGame();
+    }
+    ByteBuffer out = session.out;
+    out.put((byte) op);
+    if (ok) {
+      out.put((byte) game.status().ordinal());
+    }
+    else {
+      out.put((byte) GameServer.ERROR);
+    }
+    out.putInt(count);
+    out.putInt(game.flags);
+    out.putInt(game.cellsLeft());
+    if (op == GameServer.STATE) {
+      session.board = this.boardState(game.board);
+    }
+  }
+
+  // Returns what a player can see of the given board, ready to send
+  ByteBuffer boardState(Board board) {
+    ByteBuffer state = ByteBuffer.allocate(4 + ((board.size + 1) / 2));
+    state.putInt(board.size);
+    for (int i = 0; i < board.size; i = i + 2) {
+      int pair = board.seen(i);
+      if ((i + 1) < board.size) {
+        pair = pair | (board.seen(i + 1) << 4);
+      }
+      state.put((byte) pair);
+    }
+    state.flip();
+    return state;
+  }
+
+  // EFFECT: sends as much of the session's replies as the connection will take, and
+  // waits to write the rest before reading any more commands
+  // Returns true if every reply has been sent
+  boolean send(SelectionKey key, Session session) throws IOException {
+    ByteBuffer out = session.out;
+    out.flip();
+    session.channel.write(out);
+    out.compact();
+    if ((out.position() == 0) && (session.board != null)) {
+      session.channel.write(session.board);
+      if (!session.board.hasRemaining()) {
+        session.board = null;
+      }
+    }
+    boolean sent = (out.position() == 0) && (session.board == null);
+    if (sent) {
+      key.interestOps(SelectionKey.OP_READ);
+    }
+    else {
+      key.interestOps(SelectionKey.OP_WRITE);
+    }
+    return sent;
+  }
+
+  public String toString() {
+    return this.sessions + " sessions, " + this.commands + " commands, "
+        + this.acceptFailures + " failed accepts";
+  }
+
+  // serves games on the given port until the process is stopped
+  // run with: java GameServer [port width height mines]
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int port = 7070;
+    BoardConfig config = BoardConfig.STANDARD;
+    if (args.length >= 1) {
+      port = Integer.parseInt(args[0]);
+    }
+    if (args.length == 4) {
+      config = new BoardConfig(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+          Integer.parseInt(args[3]));
+    }
+    GameServer server = new GameServer(port, config, System.nanoTime());
+    server.start();
+    System.out.println("serving " + config + " games on port " + server.port());
+    server.thread.join();
+  }
+}
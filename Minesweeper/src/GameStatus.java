@@ -0,0 +1,4 @@
+// the stages a game goes through
+enum GameStatus {
+  READY, PLAYING, WON, LOST
+}
@@ -0,0 +1,103 @@
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// counts how often values of each size are recorded, in buckets that are each an eighth
+// of a power of two wide, so any percentile it reports is within 12.5% of the true one
+// Recording is a few atomic adds with no locks, so any thread can record at any time
+class Histogram {
+  String name;
+  AtomicLongArray counts;
+  LongAdder count;
+  LongAdder total;
+  AtomicLong max;
+
+  // the number of bits of each value kept below its highest bit
+  static int SUB_BITS = 3;
+
+  Histogram(String name) {
+    this.name = name;
+    this.counts = new AtomicLongArray(64 << Histogram.SUB_BITS);
+    this.count = new LongAdder();
+    this.total = new LongAdder();
+    this.max = new AtomicLong();
+  }
+
+  // Returns the bucket the given value falls in
+  // Values below 8 get a bucket each; above that, the highest bit picks a power of two
+  // and the next three bits which eighth of it
+  int bucket(long value) {
+    if (value < (1 << Histogram.SUB_BITS)) {
+      return (int) Math.max(0, value);
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exp - Histogram.SUB_BITS)) & ((1 << Histogram.SUB_BITS) - 1);
+    return ((exp - Histogram.SUB_BITS + 1) << Histogram.SUB_BITS) + sub;
+  }
+
+  // Returns the largest value that falls in the given bucket
+  long highest(int bucket) {
+    if (bucket < (1 << Histogram.SUB_BITS)) {
+      return bucket;
+    }
+    int shift = (bucket >>> Histogram.SUB_BITS) - 1;
+    long base = (1 << Histogram.SUB_BITS) + (bucket & ((1 << Histogram.SUB_BITS) - 1));
+    return ((base + 1) << shift) - 1;
+  }
+
+  // EFFECT: records the given value, if metrics are on
+  void add(long value) {
+    if (Metrics.ENABLED) {
+      this.record(value);
+    }
+  }
+
+  // EFFECT: records the time since start, which came from Metrics.start()
+  void stop(long start) {
+    if (start != 0) {
+      this.record(System.nanoTime() - start);
+    }
+  }
+
+  // EFFECT: records the given value
+  void record(long value) {
+    this.counts.incrementAndGet(this.bucket(value));
+    this.count.increment();
+    this.total.add(value);
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  // Returns the value that the given fraction of recorded values are at or below, rounded
+  // up to the top of its bucket, or 0 if nothing has been recorded
+  long percentile(double fraction) {
+    long target = (long) Math.ceil(fraction * this.count.sum());
+    long seen = 0;
+    for (int i = 0; i < this.counts.length(); i = i + 1) {
+      seen = seen + this.counts.get(i);
+      if ((seen >= target) && (seen > 0)) {
+        return Math.min(this.highest(i), this.max.get());
+      }
+    }
+    return this.max.get();
+  }
+
+  // EFFECT: adds this histogram's count, percentiles and max to the given map
+  void report(Map<String, Long> into) {
+    into.put(this.name + ".count", this.count.sum());
+    into.put(this.name + ".total", this.total.sum());
+    into.put(this.name + ".p50", this.percentile(0.5));
+    into.put(this.name + ".p99", this.percentile(0.99));
+    into.put(this.name + ".max", this.max.get());
+  }
+
+  // EFFECT: forgets every recorded value
+  void reset() {
+    for (int i = 0; i < this.counts.length(); i = i + 1) {
+      this.counts.set(i, 0);
+    }
+    this.count.reset();
+    this.total.reset();
+    this.max.set(0);
+  }
+}
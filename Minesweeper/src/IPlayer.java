@@ -0,0 +1,7 @@
+import java.util.SplittableRandom;
+
+// chooses which cell to reveal next in a game
+interface IPlayer {
+  // Returns the index of a cell that is neither revealed nor flagged
+  int nextMove(Game game, SplittableRandom rand);
+}
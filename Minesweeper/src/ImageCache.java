@@ -0,0 +1,59 @@
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+// shares one image between every cell that looks the same
+// Every image is built up front, so the cache is only ever read once it is made and can
+// be shared by games drawn on different threads.
+class ImageCache {
+  BoardAssets assets;
+  WorldImage[] cells;
+  
+  // a cache for cells drawn with the given assets, holding the image of every state a
+  // cell can be drawn in with each parity
+  ImageCache(BoardAssets assets) {
+    this.assets = assets;
+    this.cells = new WorldImage[4 * 9 * 2];
+    for (int parity = 0; parity < 2; parity = parity + 1) {
+      this.build(false, false, false, 0, parity);
+      this.build(false, false, true, 0, parity);
+      this.build(true, true, false, 0, parity);
+      for (int contacts = 0; contacts < 9; contacts = contacts + 1) {
+        this.build(true, false, false, contacts, parity);
+      }
+    }
+  }
+  
+  // EFFECT: builds the image of a cell in the given state with the given parity
+  void build(boolean clicked, boolean mine, boolean flagged, int contacts, int parity) {
+    this.cells[this.cellKey(clicked, mine, flagged, contacts, parity)] = 
+        this.assets.drawCell(clicked, mine, flagged, contacts, 
+            new Utils().cellColor(clicked, parity));
+  }
+  
+  // Gets the image of a cell in the given state with the given parity
+  WorldImage cellImage(boolean clicked, boolean mine, boolean flagged, int contacts, 
+      int parity) {
+    return this.cells[this.cellKey(clicked, mine, flagged, contacts, parity)];
+  }
+  
+  // Returns where the image of a cell in the given state is kept
+  // Unrevealed cells, flagged cells and mines look the same whatever they are touching
+  int cellKey(boolean clicked, boolean mine, boolean flagged, int contacts, int parity) {
+    int state;
+    int shown = 0;
+    if (clicked && mine) {
+      state = 3;
+    }
+    else if (clicked) {
+      state = 2;
+      shown = contacts;
+    }
+    else if (flagged) {
+      state = 1;
+    }
+    else {
+      state = 0;
+    }
+    return (((state * 9) + shown) * 2) + parity;
+  }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the best times and other stats of won games, for each kind of game, kept in a file so
+// they last from one run to the next
+// Each win is appended to the file as a line of its own. Once enough have piled up, the
+// whole file is rewritten as one line of stats for each kind of game, so loading it never
+// has to read more than a line a kind plus the wins since.
+// Lines look like
+//   win   <kind>  <secs>
+//   stats <kind>  <count> <best> <total> <max> <bucket>:<count>,...
+// and any other line, such as one cut short by a crash, is skipped.
+// Every window keeps its wins in the same file, so they share one leaderboard for it,
+// which each locks while using; two leaderboards on one file would each compact it down
+// to their own wins.
+class Leaderboard {
+  HashMap<String, TimeStats> stats;
+  Path file;
+  int appended;
+  int compactEvery;
+
+  // the leaderboard kept in each file, shared by everything in this process that uses it
+  static ConcurrentHashMap<Path, Leaderboard> SHARED =
+      new ConcurrentHashMap<Path, Leaderboard>();
+
+  // a leaderboard that is only kept in memory
+  Leaderboard() {
+    this.stats = new HashMap<String, TimeStats>();
+    this.file = null;
+    this.appended = 0;
+    this.compactEvery = 256;
+  }
+
+  // a leaderboard kept in the given file, starting from whatever is in it already
+  Leaderboard(Path file) {
+    this();
+    this.file = file;
+    this.load();
+  }
+
+  // Returns the leaderboard kept in the given file, the same one every time it is asked for
+  static Leaderboard of(Path file) {
+    return Leaderboard.SHARED.computeIfAbsent(file.toAbsolutePath().normalize(),
+        f -> new Leaderboard(f));
+  }
+
+  // Returns the stats of the given kind of game, which are empty if none have been won
+  synchronized TimeStats stats(String kind) {
+    return this.stats.computeIfAbsent(kind, k -> new TimeStats(k));
+  }
+
+  // Returns true if a game of the given kind has been won
+  synchronized boolean hasBest(String kind) {
+    return this.stats(kind).count() > 0;
+  }
+
+  // Returns the best time a game of the given kind has been won in
+  synchronized int best(String kind) {
+    return this.stats(kind).best;
+  }
+
+  // EFFECT: counts a win of the given kind of game in the given number of seconds, adding
+  // it to the file, which is compacted once enough wins have been added
+  synchronized void record(String kind, int secs) {
+    this.stats(kind).add(secs);
+    if (this.file != null) {
+      this.append(Arrays.asList("win\t" + kind + "\t" + secs));
+      if (this.appended >= this.compactEvery) {
+        this.compact();
+      }
+    }
+  }
+
+  // EFFECT: reads the stats in the file, compacting it if it has grown long
+  synchronized void load() {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(this.file);
+    }
+    catch (IOException e) {
+      // nothing has been won yet
+      return;
+    }
+    for (String line : lines) {
+      String[] fields = line.split("\t");
+      try {
+        if (fields[0].equals("win") && (fields.length == 3)) {
+          int secs = Integer.parseInt(fields[2]);
+          this.stats(fields[1]).add(secs);
+          this.appended = this.appended + 1;
+        }
+        else if (fields[0].equals("stats") && (fields.length >= 6)) {
+          TimeStats stats = new TimeStats(fields[1]);
+          stats.addLine(fields, 2);
+          this.stats(fields[1]).add(stats);
+        }
+      }
+      catch (NumberFormatException | IndexOutOfBoundsException e) {
+        // not a line this wrote, so it is skipped
+      }
+    }
+    if (this.appended >= this.compactEvery) {
+      this.compact();
+    }
+  }
+
+  // EFFECT: replaces the file with one line of stats for each kind of game, writing it
+  // beside the file first so a crash part way through leaves the old one whole
+  synchronized void compact() {
+    ArrayList<String> lines = new ArrayList<String>();
+    for (String kind : this.stats.keySet()) {
+      TimeStats stats = this.stats.get(kind);
+      if (stats.count() > 0) {
+        lines.add("stats\t" + kind + "\t" + stats.toLine());
+      }
+    }
+    Path next = this.file.resolveSibling(this.file.getFileName() + ".new");
+    try {
+      Files.write(next, lines);
+      Files.move(next, this.file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      this.appended = 0;
+    }
+    catch (IOException e) {
+      // the wins stay in the old file, and the next win tries again
+    }
+  }
+
+  // EFFECT: adds the given lines to the end of the file
+  synchronized void append(List<String> lines) {
+    try {
+      Files.write(this.file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      this.appended = this.appended + lines.size();
+    }
+    catch (IOException e) {
+      // the win still counts for this run
+    }
+  }
+}
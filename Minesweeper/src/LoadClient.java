@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+// plays games on a GameServer over many connections at once, to see how many sessions
+// it can keep up with and how long each command takes
+// Each connection sends a command as soon as the reply to its last one arrives: a reveal
+// of a random cell most of the time, sometimes a flag or a look at the board, and a
+// restart once a game is over.
+class LoadClient {
+  Selector selector;
+  ArrayList<ClientSession> sessions;
+  SplittableRandom rand;
+  Histogram latency;
+  long commands;
+  int width;
+  int height;
+  int mines;
+
+  LoadClient(int width, int height, int mines, long seed) throws IOException {
+    this.selector = Selector.open();
+    this.sessions = new ArrayList<ClientSession>();
+    this.rand = new SplittableRandom(seed);
+    this.latency = new Histogram("command");
+    this.commands = 0;
+    this.width = width;
+    this.height = height;
+    this.mines = mines;
+  }
+
+  // EFFECT: opens the given number of connections to the given address, each starting a
+  // game of its own
+  void connect(InetSocketAddress address, int count) throws IOException {
+    for (int i = 0; i < count; i = i + 1) {
+      SocketChannel channel = SocketChannel.open(address);
+      channel.configureBlocking(false);
+      channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+      ClientSession session = new ClientSession(channel, this.width * this.height);
+      channel.register(this.selector, SelectionKey.OP_READ, session);
+      this.sessions.add(session);
+      session.out.put((byte) GameServer.NEW).putShort((short) this.width)
+          .putShort((short) this.height).putInt(this.mines).putLong(this.rand.nextLong());
+      this.send(session, GameServer.NEW);
+    }
+  }
+
+  // EFFECT: keeps every connection busy for the given number of milliseconds
+  void run(long millis) throws IOException {
+    long end = System.nanoTime() + (millis * 1000000);
+    while (System.nanoTime() < end) {
+      this.selector.select(100);
+      Iterator<SelectionKey> ready = this.selector.selectedKeys().iterator();
+      while (ready.hasNext()) {
+        SelectionKey key = ready.next();
+        ready.remove();
+        this.receive((ClientSession) key.attachment());
+      }
+    }
+  }
+
+  // EFFECT: reads what has arrived for the given session, and sends its next command once
+  // the whole reply is in
+  void receive(ClientSession session) throws IOException {
+    if (session.channel.read(session.in) < 0) {
+      throw new IOException("server closed a session");
+    }
+    int length = GameServer.REPLY_LENGTH;
+    if (session.lastOp == GameServer.STATE) {
+      length = length + 4 + ((session.size + 1) / 2);
+    }
+    if (session.in.position() < length) {
+      return;
+    }
+    this.latency.record(System.nanoTime() - session.sentAt);
+    this.commands = this.commands + 1;
+    session.status = session.in.get(1) & 0xFF;
+    session.in.clear();
+    int op;
+    if ((session.status == GameStatus.WON.ordinal())
+        || (session.status == GameStatus.LOST.ordinal())) {
+      op = GameServer.RESTART;
+    }
+    else {
+      int roll = this.rand.nextInt(20);
+      if (roll == 0) {
+        op = GameServer.STATE;
+      }
+      else if (roll == 1) {
+        op = GameServer.FLAG;
+      }
+      else {
+        op = GameServer.REVEAL;
+      }
+    }
+    session.out.put((byte) op);
+    if ((op == GameServer.REVEAL) || (op == GameServer.FLAG)) {
+      session.out.putInt(this.rand.nextInt(session.size));
+    }
+    this.send(session, op);
+  }
+
+  // EFFECT: sends the command waiting in the given session's buffer
+  void send(ClientSession session, int op) throws IOException {
+    session.out.flip();
+    session.sentAt = System.nanoTime();
+    session.lastOp = op;
+    while (session.out.hasRemaining()) {
+      session.channel.write(session.out);
+    }
+    session.out.clear();
+  }
+
+  // EFFECT: closes every connection
+  void close() throws IOException {
+    for (ClientSession session : this.sessions) {
+      session.channel.close();
+    }
+    this.selector.close();
+  }
+
+  // starts a server on a free port and plays games on it over the given number of
+  // connections for the given number of seconds, printing how many commands a second it
+  // handles, how long they take, and how much memory each session holds
+  // run with: java LoadClient [sessions seconds]
+  public static void main(String[] args) throws IOException {
+    int count = 5000;
+    int seconds = 10;
+    if (args.length == 2) {
+      count = Integer.parseInt(args[0]);
+      seconds = Integer.parseInt(args[1]);
+    }
+    BoardConfig config = new BoardConfig(9, 9, 10);
+    GameServer server = new GameServer(0, config, 1);
+    server.start();
+    System.gc();
+    long before = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    LoadClient client = new LoadClient(config.width, config.height, config.mines, 2);
+    client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()),
+        count);
+    client.run(seconds * 1000L);
+    System.gc();
+    long after = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    System.out.println(count + " sessions: " + (client.commands / seconds) + " commands/s, p50 "
+        + (client.latency.percentile(0.5) / 1000) + "us, p99 "
+        + (client.latency.percentile(0.99) / 1000) + "us, about "
+        + ((after - before) / count) + " bytes a session on both ends, server " + server);
+    client.close();
+    server.close();
+  }
+}
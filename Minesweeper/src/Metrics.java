@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// the timings and counts taken from the running game, which cost a single check of
+// ENABLED when they are off
+// A timed section looks like
+//   long start = Metrics.start();
+//   ...
+//   Metrics.ON_TICK.stop(start);
+// where start is 0 when metrics are off, so stop does nothing.
+// The MinesweepMetrics MBean is always registered, so they can be read and switched on or
+// off over JMX in any running game. Turn them on from the start with
+// -Dminesweeper.metrics=true, and add -Dminesweeper.metrics.dump=<file> to have them
+// written to a file every ten seconds.
+class Metrics {
+  // whether timings and counts are being taken
+  static volatile boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+  // time taken by each hot path, in nanoseconds
+  static Histogram ON_TICK = new Histogram("onTick");
+  static Histogram MAKE_SCENE = new Histogram("makeScene");
+  static Histogram MOUSE_PRESSED = new Histogram("onMousePressed");
+  static Histogram REVEAL = new Histogram("reveal");
+  static Histogram GENERATE = new Histogram("generate");
+
+  // cells uncovered by each click, and images placed in each scene that is built
+  static Histogram CELLS_PER_CLICK = new Histogram("cellsPerClick");
+  static Histogram SCENE_ELEMENTS = new Histogram("sceneElements");
+
+  // every histogram, in the order they are reported
+  static Histogram[] ALL = {Metrics.ON_TICK, Metrics.MAKE_SCENE, Metrics.MOUSE_PRESSED,
+    Metrics.REVEAL, Metrics.GENERATE, Metrics.CELLS_PER_CLICK, Metrics.SCENE_ELEMENTS};
+
+  // the name the MBean is registered under
+  static String MBEAN_NAME = "minesweeper:type=MinesweepMetrics";
+
+  // writes the dump file, once one is asked for
+  static ScheduledExecutorService DUMPER = null;
+
+  static {
+    Metrics.register();
+    if (Metrics.ENABLED) {
+      String dump = System.getProperty("minesweeper.metrics.dump");
+      if (dump != null) {
+        Metrics.dumpEvery(Paths.get(dump), 10);
+      }
+    }
+  }
+
+  // Returns the time now to pass to Histogram.stop, or 0 if metrics are off
+  static long start() {
+    if (Metrics.ENABLED) {
+      return System.nanoTime();
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // Returns the current value of every histogram, by name
+  static Map<String, Long> snapshot() {
+    Map<String, Long> values = new LinkedHashMap<String, Long>();
+    for (Histogram histogram : Metrics.ALL) {
+      histogram.report(values);
+    }
+    return values;
+  }
+
+  // EFFECT: forgets everything recorded so far
+  static void reset() {
+    for (Histogram histogram : Metrics.ALL) {
+      histogram.reset();
+    }
+  }
+
+  // EFFECT: makes the metrics readable over JMX, if they are not already
+  static void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(Metrics.MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MinesweepMetrics(), name);
+      }
+    }
+    catch (JMException e) {
+      throw new IllegalStateException("could not register " + Metrics.MBEAN_NAME, e);
+    }
+  }
+
+  // EFFECT: appends a timestamped snapshot to the given file every given number of
+  // seconds, on a background thread
+  static synchronized void dumpEvery(Path file, long seconds) {
+    if (Metrics.DUMPER == null) {
+      Metrics.DUMPER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+      });
+      Metrics.DUMPER.scheduleAtFixedRate(() -> Metrics.dump(file), seconds, seconds,
+          TimeUnit.SECONDS);
+    }
+  }
+
+  // EFFECT: appends a timestamped snapshot to the given file, one value to a line
+  static void dump(Path file) {
+    ArrayList<String> lines = new ArrayList<String>();
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, Long> entry : Metrics.snapshot().entrySet()) {
+      lines.add(now + "\t" + entry.getKey() + "\t" + entry.getValue());
+    }
+    try {
+      Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    catch (IOException e) {
+      // a failed dump is dropped, the next one tries again
+    }
+  }
+}
@@ -0,0 +1,22 @@
+import java.util.Map;
+
+// the metrics as seen over JMX
+class MinesweepMetrics implements MinesweepMetricsMXBean {
+  MinesweepMetrics() {}
+
+  public boolean isEnabled() {
+    return Metrics.ENABLED;
+  }
+
+  public void setEnabled(boolean enabled) {
+    Metrics.ENABLED = enabled;
+  }
+
+  public Map<String, Long> getSnapshot() {
+    return Metrics.snapshot();
+  }
+
+  public void reset() {
+    Metrics.reset();
+  }
+}
@@ -0,0 +1,17 @@
+import java.util.Map;
+
+// what JMX clients such as jconsole can see and change of the game's metrics
+// This has to be public for JMX to read it, unlike the rest of the game
+public interface MinesweepMetricsMXBean {
+  // Returns true if timings and counts are being taken
+  boolean isEnabled();
+
+  // EFFECT: switches timings and counts on or off
+  void setEnabled(boolean enabled);
+
+  // Returns the count, total, p50, p99 and max of every histogram, by name
+  Map<String, Long> getSnapshot();
+
+  // EFFECT: forgets everything recorded so far
+  void reset();
+}
@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Random;
+import java.awt.Color;
+import java.awt.MouseInfo;
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+// represents the data of our world
+class MinesweepWorld extends World {
+  Game game;
+  BoardConfig config;
+  BoardView view;
+  WorldImage infoBarImage;
+  int infoBarFlags;
+  int infoBarSecs;
+  int stateVersion;
+  int sceneVersion;
+  WorldScene scene;
+  WorldImage[] cellImages;
+  BitSet dirtyCells;
+ 
+  // a window showing the given game, drawn as the given configuration says
+  MinesweepWorld(Game game, BoardConfig config) {
+    this.game = game;
+    this.config = config;
+    this.view = new BoardView(config);
+    this.stateVersion = 0;
+    this.dirtyCells = new BitSet();
+  }
+  
+  // a window showing the given game with cells the size of the standard game's
+  MinesweepWorld(Game game) {
+    this(game, new BoardConfig(game.width, game.height, game.numMines, 
+        BoardConfig.STANDARD.cellSize));
+  }
+ 
+  MinesweepWorld(Board board, int flags) {
+    this(new Game(board, flags));
+  }
+  
+  // a new game with the given configuration whose mines are placed using the given seed
+  MinesweepWorld(BoardConfig config, long seed) {
+    this(new Game(config.width, config.height, config.mines, seed), config);
+  }
+ 
+  // a new standard game whose mines are placed using the given seed
+  MinesweepWorld(long seed) {
+    this(BoardConfig.STANDARD, seed);
+  }
+  
+  // a new game with the given configuration and a random seed, whose later games come
+  // ready made from the pool, and whose wins are kept in the scores file
+  // Run with -Dminesweeper.record=<file> to have the games appended to that file as they
+  // are played, to be played back with Replayer
+  MinesweepWorld(BoardConfig config) {
+    this(config, new Random().nextLong());
+    this.game.usePool(MinesweepWorld.POOL);
+    MinesweepWorld.POOL.prepare(config.width, config.height, config.mines, false);
+    this.game.leaderboard = Leaderboard.of(MinesweepWorld.SCORES_FILE);
+    String record = System.getProperty("minesweeper.record");
+    if (record != null) {
+      this.game.record(new Recorder(Paths.get(record)));
+    }
+  }
+  
+  // a new standard game with a random seed, whose later games come ready made from the
+  // pool, and whose wins are kept in the scores file
+  MinesweepWorld() {
+    this(BoardConfig.STANDARD);
+  }
+  
+  // EFFECT: opens a window for this game and starts it
+  void play() {
+    this.bigBang(this.config.windowWidth(), this.config.windowHeight(), 1 / 18.0);
+  }
+  
+  // the file the game is saved to and loaded from
+  static Path SAVE_FILE = Paths.get("minesweeper.sav");
+  
+  // the file the best times and stats of every kind of game are kept in
+  static Path SCORES_FILE = Paths.get("minesweeper.scores");
+  
+  // the boards made ahead of time for new games, shared by every game
+  static BoardPool POOL = new BoardPool(4, new Random().nextLong());
+ 
+  // makes the scene for the game, reusing the last one if nothing has changed since
+  public WorldScene makeScene() {
+    long start = Metrics.start();
+    if ((this.scene == null) || (this.sceneVersion != this.stateVersion)) {
+      this.scene = this.buildScene();
+      this.sceneVersion = this.stateVersion;
+    }
+    Metrics.MAKE_SCENE.stop(start);
+    return this.scene;
+  }
+  
+  // EFFECT: notes that something on screen has changed, so the next scene is rebuilt
+  void changed() {
+    this.stateVersion = this.stateVersion + 1;
+  }
+  
+  // EFFECT: notes that the cell at idx looks different, so only it is redrawn
+  void changedCell(int idx) {
+    this.dirtyCells.set(idx);
+    this.changed();
+  }
+  
+  // EFFECT: notes that every cell the last reveal uncovered looks different
+  void changedRevealed(int count) {
+    for (int i = 0; i < count; i = i + 1) {
+      this.dirtyCells.set(this.game.board.lastRevealed[i]);
+    }
+    this.changed();
+  }
+  
+  // EFFECT: draws again each cell that has changed since the last scene, or every cell
+  // if the board has been replaced
+  void redrawCells() {
+    BoardView view = this.view;
+    Board board = this.game.board;
+    if ((this.cellImages == null) || (this.cellImages.length != board.size)) {
+      this.cellImages = new WorldImage[board.size];
+      this.dirtyCells.set(0, board.size);
+    }
+    for (int i = this.dirtyCells.nextSetBit(0); i >= 0; i = this.dirtyCells.nextSetBit(i + 1)) {
+      this.cellImages[i] = view.drawCell(board, i);
+    }
+    this.dirtyCells.clear();
+  }
+  
+  // Builds a new scene for the game
+  WorldScene buildScene() {
+    this.redrawCells();
+    WorldScene world = new WorldScene(0, 0);
+    BoardConfig config = this.config;
+    this.view.drawBoard(this.game.board, this.cellImages, world);
+    world.placeImageXY(this.infoBar(), 
+        (config.boardWidth() / 2) + (config.cellSize / 2), 
+        (3 * config.cellSize / 2));
+    int elements = this.game.board.size + 1;
+    if (this.game.gameFinished) {
+      elements = elements + 2;
+      WorldImage background = new RectangleImage(config.boardWidth(),
+          config.boardHeight() + (2 * config.cellSize),
+          OutlineMode.SOLID, new Color(0, 0, 0, 150));
+      world.placeImageXY(background, 
+          (config.boardWidth() / 2) + (config.cellSize / 2),
+          (config.boardHeight() / 2) + ((3 * config.cellSize) / 2));
+      WorldImage text1 = new TextImage(this.endMessage(), 25, FontStyle.BOLD, Color.white);
+      WorldImage text1Shadow = new TextImage(this.endMessage(), 25, 
+          FontStyle.BOLD, new Color(0, 0, 0, 200));
+      text1 = new OverlayOffsetImage(text1, 2, 2, text1Shadow);
+      if ((this.game.leaderboard != null) && this.game.leaderboard.hasBest(this.game.kind())) {
+        String best = this.bestTime();
+        WorldImage text2 = new TextImage(best, 25, FontStyle.BOLD, Color.white);
+        WorldImage text2Shadow = new TextImage(best, 25, 
+            FontStyle.BOLD, new Color(0, 0, 0, 200));
+        text2 = new OverlayOffsetImage(text2, 2, 2, text2Shadow);
+        text1 = new AboveImage(text1, text2);
+      }
+      world.placeImageXY(text1, (config.boardWidth() / 2) + (config.cellSize / 2),
+          (config.boardHeight() / 2) + ((3 * config.cellSize) / 2));
+    }
+    Metrics.SCENE_ELEMENTS.add(elements);
+    return world;
+  }
+  
+  // Gets the bar above the board showing the flags left, the time and the restart button,
+  // only building a new one when the flags left or the time have changed
+  WorldImage infoBar() {
+    if ((this.infoBarImage == null) || (this.infoBarFlags != this.game.flags) 
+        || (this.infoBarSecs != this.game.secs)) {
+      this.infoBarImage = this.makeInfoBar();
+      this.infoBarFlags = this.game.flags;
+      this.infoBarSecs = this.game.secs;
+    }
+    return this.infoBarImage;
+  }
+  
+  // Builds the bar above the board for the current flags left and time
+  WorldImage makeInfoBar() {
+    BoardConfig config = this.config;
+    BoardAssets assets = this.view.assets;
+    WorldImage infoBase = new RectangleImage(config.boardWidth(), 
+        (2 * config.cellSize), OutlineMode.SOLID, new Color(80, 155, 0, 255));
+    WorldImage flag = new ScaleImage(assets.flag(), 1.3);
+    WorldImage numFlags = new TextImage(Integer.toString(this.game.flags), assets.fontSize, FontStyle.BOLD, Color.white);
+    WorldImage flagCount = new OverlayOffsetImage(flag, config.cellSize, 0, numFlags);
+    WorldImage time = new TextImage(Integer.toString(this.game.secs), assets.fontSize, FontStyle.BOLD, Color.white);
+    WorldImage timer = new OverlayOffsetImage(assets.clock(), config.cellSize, 0, time);
+    infoBase = new OverlayOffsetImage(assets.restart(), 
+        config.boardWidth() / 4, 0,
+        infoBase);
+    infoBase = new OverlayImage(flagCount, infoBase);
+    infoBase = new OverlayOffsetImage(timer, 
+        -config.boardWidth() / 4, 0, infoBase);
+    return infoBase;
+  }
+  
+  // EFFECT: alters the state of the game based on the clicked cell
+  public void onMousePressed(Posn p, String buttonName) {
+    long start = Metrics.start();
+    BoardView view = this.view;
+    int cell = view.cellAt(this.game.board, p);
+    
+    if (view.onRestart(this.game.board, p)) {
+      this.newGame();
+    }
+    else if (cell < 0) {
+      // do nothing
+    }
+    else if (buttonName.equals("RightButton")) {
+      if (this.game.toggleFlagAt(cell)) {
+        this.changedCell(cell);
+      }
+    }
+    else {
+      int count = this.game.revealAt(cell, buttonName.equals("LeftButton"));
+      if (count > 0) {
+        this.changedRevealed(count);
+      }
+      if (this.game.mineHit) {
+        this.dirtyCells.or(this.game.board.mines);
+      }
+      Metrics.CELLS_PER_CLICK.add(count);
+    }
+    Metrics.MOUSE_PRESSED.stop(start);
+  }
+
+//  // EFFECT: alters the state of the game based on cell being hovered over
+//  public void onMouseEntered(Posn p) {
+//    boolean found = false;
+//    Cell cell = null;
+//      
+//    for (int i = 0; i < this.board.size(); i = i + 1) {
+//        if ((this.board.get(i).x - (MinesweepWorld.CELL_SIZE / 2)) <= p.x 
+//            && (this.board.get(i).x + (MinesweepWorld.CELL_SIZE / 2)) >= p.x 
+//            && (this.board.get(i).y - (MinesweepWorld.CELL_SIZE / 2)) <= p.y 
+//            && (this.board.get(i).y + (MinesweepWorld.CELL_SIZE / 2)) >= p.y) {
+//          cell = this.board.get(i);
+//          found = true;
+//        }
+//      }
+//      if (!(found) || cell.clicked) {
+//        // do nothing
+//      }
+//      else {
+//        cell.color = new Color(205, 255, 145, 255);
+//      }
+//    }
+//  
+//  // EFFECT: alters the state of the game based on cell being hovered over
+//  public void onMouseExited(Posn p) {
+//    boolean found = false;
+//    Cell cell = null;
+//      
+//    for (int i = 0; i < this.board.size(); i = i + 1) {
+//        if ((this.board.get(i).x - (MinesweepWorld.CELL_SIZE / 2)) <= p.x 
+//            && (this.board.get(i).x + (MinesweepWorld.CELL_SIZE / 2)) >= p.x 
+//            && (this.board.get(i).y - (MinesweepWorld.CELL_SIZE / 2)) <= p.y 
+//            && (this.board.get(i).y + (MinesweepWorld.CELL_SIZE / 2)) >= p.y) {
+//          cell = this.board.get(i);
+//          found = true;
+//        }
+//      }
+//      if (!(found) || cell.clicked) {
+//        // do nothing
+//      }
+//      else {
+//        cell.color = cell.initColor();
+//      }
+//    }
+  
+  public void onTick() {
+    //this.onMouseEntered(new Utils().pointToPosn(MouseInfo.getPointerInfo().getLocation()));
+    //this.onMouseExited(new Utils().pointToPosn(MouseInfo.getPointerInfo().getLocation()));
+    long start = Metrics.start();
+    if (this.game.tick()) {
+      this.changed();
+    }
+    Metrics.ON_TICK.stop(start);
+  }
+  
+  // EFFECT: Resets the current game and creates a new board, starts a game that needs
+  // no guessing, reveals a cell that is certainly safe as a hint, or saves or loads the
+  // game
+  public void onKeyEvent(String key) {
+    if (key.equals("r")) {
+      this.newGame();
+    }
+    else if (key.equals("n")) {
+      this.game.useNoGuess(Runtime.getRuntime().availableProcessors());
+      this.newGame();
+    }
+    else if (key.equals("h")) {
+      this.hint();
+    }
+    else if (key.equals("s")) {
+      this.save(MinesweepWorld.SAVE_FILE);
+    }
+    else if (key.equals("l")) {
+      this.load(MinesweepWorld.SAVE_FILE);
+    }
+  }
+  
+  // EFFECT: saves the game to the given file, if it can be written
+  void save(Path file) {
+    try {
+      new SaveFile().save(this.game, file);
+    }
+    catch (IOException e) {
+      // the game carries on unsaved
+    }
+  }
+  
+  // EFFECT: carries on the game saved in the given file, if there is one and it is on a
+  // board of the size this window is drawn for
+  void load(Path file) {
+    try {
+      new SaveFile().load(this.game, file, false);
+      this.cellImages = null;
+      this.changed();
+    }
+    catch (IOException | IllegalArgumentException e) {
+      // nothing that can be loaded was saved, so the game carries on as it is
+    }
+  }
+  
+  // EFFECT: reveals a cell the solver has shown to be safe, if there is one
+  void hint() {
+    if (this.game.solver == null) {
+      this.game.useSolver();
+    }
+    int safe = this.game.solver.nextSafe();
+    if ((safe >= 0) && (this.game.numClicks > 0)) {
+      this.changedRevealed(this.game.revealAt(safe, true));
+    }
+  }
+  
+  // EFFECT: Makes a new game
+  void newGame() {
+    this.game.newGame();
+    this.cellImages = null;
+    this.changed();
+  }
+  
+  // Gets the message for a win or loss depending on the game state
+  String endMessage() {
+    if (this.game.mineHit) {
+      return "Sorry, YOU LOST!";
+    }
+    else {
+      return "You won in " + Integer.toString(this.game.secs) + " seconds!";
+    }
+  }
+  
+  // Gets the message to say the best time so far for this kind of game
+  String bestTime() {
+    return "Your current record is " 
+        + Integer.toString(this.game.leaderboard.best(this.game.kind())) + " seconds";
+  }
+  
+//  // Determines when to end the game
+//  public WorldEnd worldEnds() {
+//    if (this.mineHit) {
+//      return new WorldEnd(true, this.makeAFinalScene());
+//    }
+//    else {
+//      return new WorldEnd(false, this.makeScene());
+//    }
+//  }
+//  
+//  // Makes the final scene of a game, representing either a win or a loss
+//  public WorldScene makeAFinalScene() {
+//    for (Cell c : this.mines) {
+//      c.clicked = true;
+//      c.color = c.revealColor();
+//    }
+//    return this.makeScene();
+//  }
+  }
@@ -1,1129 +1,1357 @@
 import tester.Tester;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Random;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import javalib.impworld.*;
-import java.awt.Color;
-import java.awt.MouseInfo;
-import java.awt.Point;
 
 import javalib.worldimages.*;
 
-// represents a cell or lack thereof
-abstract class ACell {
-  ACell left;
-  ACell top;
-  ACell right;
-  ACell bottom;
-  boolean mine;
- 
-  ACell(ACell left, ACell top, ACell right, ACell bottom, boolean mine) {
-    this.left = left;
-    this.top = top;
-    this.right = right;
-    this.bottom = bottom;
-    this.mine = mine;
-  }
+class ExamplesMinesweep {
+  ExamplesMinesweep() {}
  
-  // EFFECT: Makes the given cell the left of this cell
-  void makeLeft(ACell other) {
-    this.left = other;
-  }
-
-  // EFFECT: Makes the given cell the top of this cell
-  void makeTop(ACell other) {
-    this.top = other;
-  }
-
-  // EFFECT: Makes the given cell the right of this cell
-  void makeRight(ACell other) {
-    this.right = other;
-  }
-
-  // EFFECT: Makes the given cell the bottom of this cell
-  void makeBottom(ACell other) {
-    this.bottom = other;
-  }
+  Board board2x2;
+  Board board3x3;
+  Board boardCopy;
   
-  // Returns true if this ACell is a mine
-  abstract boolean isMine();
-  
-  // Attempts to spread to the touching cells 
-  void attemptSpread() {
-    // default is do nothing
-  }
-}
-
-// represents an empty position
-class NoCell extends ACell {
- 
-  NoCell(ACell left, ACell top, ACell right, ACell bottom) {
-    super(left, top, right, bottom, false);
-  }
+  MinesweepWorld world2x2;
+  MinesweepWorld world3x3;
+  MinesweepWorld worldCopy;
  
-  NoCell(NoCell extra) {
-    super(extra, null, extra, null, false);
+  void initCond() {
+    this.boardCopy = new Board(2, 2);
+    this.boardCopy.placeMine(0);
+    this.worldCopy = new MinesweepWorld(boardCopy, 3);
+    
+    this.board2x2 = new Board(2, 2);
+    this.board2x2.placeMine(2);
+    this.board2x2.setContacts();
+    this.world2x2 = new MinesweepWorld(board2x2, 1);
+    
+    this.board3x3 = new Board(3, 3);
+    this.world3x3 = new MinesweepWorld(board3x3, 4);
   }
   
-  NoCell() {
-    super(null, null, null, null, false);
-  }
-
-  // A NoCell is not a mine
-  boolean isMine() {
-    return false;
-  }
-}
-
-// Represents a single square of the game area
-class Cell extends ACell {
-  int x;
-  int y;
-  int col;
-  int row;
-  int mineContacts;
-  boolean mine;
-  boolean flagged;
-  boolean clicked;
-  Color color;
- 
-  // constructor to initialize other cells to null
-  Cell(int x, int y, int col, int row) {
-    super(null, null, null, null, false);
-    this.x = x;
-    this.y = y;
-    this.col = col;
-    this.row = row;
-    this.mineContacts = 0;
-    this.flagged = false;
-    this.clicked = false;
-    this.color = this.initColor();
+  void testSetBoard(Tester t) {
+    MinesweepWorld testSetWorld = new MinesweepWorld();
+    t.checkExpect(testSetWorld.game.board.size, 
+        BoardConfig.STANDARD.width * BoardConfig.STANDARD.height);
+    t.checkExpect(testSetWorld.game.board.numMines, BoardConfig.STANDARD.mines);
+    t.checkExpect(testSetWorld.game.board.mines.cardinality(), BoardConfig.STANDARD.mines);
   }
   
-  // sets the initial color for a cell
-  Color initColor() {
-    if (((this.col + this.row) % 2) == 0) {
-      return new Color(165, 230, 80, 255);
-    }
-    else {
-      return new Color(150, 215, 75, 255);
-    }
+  void testSetMines(Tester t) {
+    Board first = new Board(30, 20);
+    Board second = new Board(30, 20);
+    first.setMines(90, new SplittableRandom(42));
+    second.setMines(90, new SplittableRandom(42));
+    t.checkExpect(first.numMines, 90);
+    t.checkExpect(first.mines, second.mines);
+    
+    Board dense = new Board(30, 20);
+    dense.setMines(500, new SplittableRandom(7));
+    t.checkExpect(dense.numMines, 500);
+    t.checkExpect(dense.mines.cardinality(), 500);
+    dense.setMines(200, new SplittableRandom(7));
+    t.checkExpect(dense.numMines, 600);
+    
+    t.checkExpect(new MinesweepWorld(5).game.board.mines, new MinesweepWorld(5).game.board.mines);
   }
   
-  // sets the revealed color for a cell
-  Color revealColor() {
-    if (((this.col + this.row) % 2) == 0) {
-      return new Color(245, 235, 200, 255);
-    }
-    else {
-      return new Color(235, 225, 185, 255);
-    }
-  }
- 
-  // draws a cell
-  WorldImage drawCell() {
-    WorldImage mineImage = new CircleImage((MinesweepWorld.CELL_SIZE / 4), 
-        OutlineMode.SOLID, new Color(200, 10, 10));
-    
-    if (this.clicked) {
-      if (this.mine) {
-        return new OverlayImage(mineImage,
-            new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-            OutlineMode.SOLID, this.color));
-      }
-      else {
-        return new OverlayImage(new TextImage(Integer.toString(this.mineContacts), 
-            MinesweepWorld.FONT_SIZE, FontStyle.BOLD, new Utils().getColor(this.mineContacts)),
-            new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-            OutlineMode.SOLID, this.color));
-      }
-    }
-    else {
-      WorldImage emptyCell = new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-          OutlineMode.SOLID, this.color);
-      if (this.flagged) {
-        return new OverlayImage(MinesweepWorld.FLAG, emptyCell);
-      }
-      else {
-        return emptyCell;
+  void testClearAround(Tester t) {
+    Board board = new Board(10, 10);
+    board.setMines(60, new SplittableRandom(3));
+    board.setContacts();
+    board.placeMine(board.index(4, 4));
+    board.placeMine(board.index(5, 5));
+    board.setContacts();
+    board.clearAround(board.index(4, 4), new SplittableRandom(9));
+    t.checkExpect(board.numMines, board.mines.cardinality());
+    t.checkExpect(board.getContacts(board.index(4, 4)), 0);
+    t.checkExpect(board.isMine(board.index(4, 4)), false);
+    t.checkExpect(board.isMine(board.index(5, 5)), false);
+    byte[] moved = Arrays.copyOf(board.contacts, board.size);
+    board.setContacts();
+    t.checkExpect(moved, board.contacts);
+    
+    // with no room outside the 3x3 area, only the clicked cell is cleared
+    Board full = new Board(4, 4);
+    full.setMines(14, new SplittableRandom(1));
+    full.setContacts();
+    int clicked = full.mines.nextSetBit(0);
+    full.clearAround(clicked, new SplittableRandom(1));
+    t.checkExpect(full.isMine(clicked), false);
+    t.checkExpect(full.mines.cardinality(), 14);
+    
+    // with just enough room outside it, the whole area is cleared, however many of its
+    // cells were mines
+    Board dense = new Board(4, 4);
+    for (int i = 0; i < 16; i = i + 1) {
+      if ((i != 10) && (i != 11) && (i != 14) && (i != 15)) {
+        dense.placeMine(i);
       }
     }
-  }
-  
-  // EFFECT: changes this cell's mineContact field based on how many mines it is touching
-  void minesInContact() {
-    int total = 0;
-    if (this.top.isMine()) {
-      total = total + 1;
-    }
-    if (this.right.isMine()) {
-      total = total + 1;
-    }
-    if (this.bottom.isMine()) {
-      total = total + 1;
-    }
-    if (this.left.isMine()) {
-      total = total + 1;
-    }
-    if (this.top.left.isMine()) {
-      total = total + 1;
-    }
-    if (this.top.right.isMine()) {
-      total = total + 1;
-    }
-    if (this.bottom.left.isMine()) {
-      total = total + 1;
+    dense.setContacts();
+    dense.clearAround(0, new SplittableRandom(2));
+    t.checkExpect(dense.mines.cardinality(), 12);
+    t.checkExpect(dense.getContacts(0), 0);
+    t.checkExpect(dense.minesIn(new int[] {0, 1, 4, 5}, 4), 0);
+    
+    // a mine finds the last free cell of a big board, even when no random draw hits it
+    Board crowded = new Board(100, 100);
+    for (int i = 1; i < 9999; i = i + 1) {
+      crowded.placeMine(i);
     }
-    if (this.bottom.right.isMine()) {
-      total = total + 1;
+    t.checkExpect(crowded.freeCellOutside(new int[] {0}, 1, 1, new SplittableRandom(3)), 
+        9999);
+    
+    // counting to a free cell skips mines and the cells being cleared, and can reach
+    // every other free cell
+    Board.DRAWS = 0;
+    Board sparse = new Board(3, 3);
+    sparse.placeMine(4);
+    int[] area = {0, 1, 3};
+    boolean[] picked = new boolean[9];
+    SplittableRandom rand = new SplittableRandom(4);
+    for (int i = 0; i < 100; i = i + 1) {
+      picked[sparse.freeCellOutside(area, 3, 5, rand)] = true;
     }
-    this.mineContacts = total;
+    Board.DRAWS = 8;
+    t.checkExpect(picked, new boolean[] {false, false, true, false, false, 
+        true, true, true, true});
   }
-
-  boolean isMine() {
-    return (this.mine);
+  
+  void testFirstClick(Tester t) {
+    MinesweepWorld world = new MinesweepWorld(11);
+    BoardView view = new BoardView();
+    int mine = world.game.board.mines.nextSetBit(0);
+    world.onMousePressed(new Posn(view.cellX(world.game.board, mine), 
+        view.cellY(world.game.board, mine)), "LeftButton");
+    t.checkExpect(world.game.mineHit, false);
+    t.checkExpect(world.game.version, 1);
+    t.checkExpect(world.game.board.getContacts(mine), 0);
+    t.checkExpect(world.game.board.numMines, BoardConfig.STANDARD.mines);
+    t.checkExpect(world.game.board.numRevealed >= 9, true);
   }
   
-  void attemptSpread() {
-    if (this.clicked || this.flagged) {
-      // do nothing, already clicked
-    }
-    else {
-      this.clicked = true;
-      this.color = this.revealColor();
-      if (this.mineContacts == 0) {
-        this.top.attemptSpread();
-        this.right.attemptSpread();
-        this.bottom.attemptSpread();
-        this.left.attemptSpread();
-        this.top.right.attemptSpread();
-        this.top.left.attemptSpread();
-        this.bottom.right.attemptSpread();
-        this.bottom.left.attemptSpread();
-      }
-    }
+  void testImageCache(Tester t) {
+    initCond();
+    
+    BoardAssets assets = BoardConfig.STANDARD.assets();
+    ImageCache cache = new ImageCache(assets);
+    t.checkExpect(cache.cellImage(true, false, false, 3, 1), 
+        assets.drawCell(true, false, false, 3, Utils.REVEALED_COLORS[1]));
+    t.checkExpect(cache.cellImage(true, false, false, 3, 1) 
+        == cache.cellImage(true, false, false, 3, 1), true);
+    t.checkExpect(cache.cellImage(false, false, false, 3, 1) 
+        == cache.cellImage(false, true, false, 5, 1), true);
+    t.checkExpect(cache.cellImage(false, false, true, 0, 0) 
+        == cache.cellImage(false, false, false, 0, 0), false);
+    t.checkExpect(cache.cellImage(true, true, false, 0, 0), 
+        assets.drawCell(true, true, false, 0, Utils.REVEALED_COLORS[0]));
+    
+    WorldImage bar = world2x2.infoBar();
+    t.checkExpect(world2x2.infoBar() == bar, true);
+    world2x2.game.secs = 4;
+    t.checkExpect(world2x2.infoBar() == bar, false);
+    t.checkExpect(world2x2.infoBar(), world2x2.makeInfoBar());
   }
-}
-
-class Utils {
-  Utils() {}
   
-  Color getColor(int contacts) {
-    if (contacts == 1) {
-      return new Color(80, 160, 230, 255);
-    }
-    else if (contacts == 2) {
-      return new Color(50, 190, 40, 255);
-    }
-    else if (contacts == 3) {
-      return new Color(215, 35, 35, 255);
-    }
-    else if (contacts == 4) {
-      return new Color(95, 5, 190, 255);
-    }
-    else if (contacts == 5) {
-      return new Color(255, 215, 10, 255);
-    }
-    else if (contacts == 6) {
-      return new Color(5, 200, 200, 255);
-    }
-    else if (contacts == 7) {
-      return new Color(250, 135, 210, 255);
-    }
-    else if (contacts == 8) {
-      return new Color(80, 225, 140, 255);
-    }
-    else {
-      return new Color(0, 0, 0, 0);
-    }
+  void testBoardIndex(Tester t) {
+    initCond();
+    
+    t.checkExpect(board3x3.index(0, 0), 0);
+    t.checkExpect(board3x3.index(1, 2), 5);
+    t.checkExpect(board3x3.row(7), 2);
+    t.checkExpect(board3x3.col(7), 1);
+    t.checkExpect(board3x3.inBounds(2, 2), true);
+    t.checkExpect(board3x3.inBounds(3, 0), false);
+    t.checkExpect(board3x3.inBounds(0, -1), false);
   }
   
-  // Gets the image for a flag
-  WorldImage flagImage() {
-    WorldImage flag = new CropImage(0, 0, (MinesweepWorld.CELL_SIZE / 4), 
-        (MinesweepWorld.CELL_SIZE / 8),
-        new CircleImage((MinesweepWorld.CELL_SIZE / 8), 
-            OutlineMode.SOLID, new Color(200, 10, 10)));
-    WorldImage pole = new RectangleImage(3, (MinesweepWorld.CELL_SIZE / 2), 
-        OutlineMode.SOLID, new Color(200, 10, 10));
-    flag = new OverlayOffsetImage(pole, -0.5, (MinesweepWorld.CELL_SIZE / 4), flag);
-    WorldImage tri = new EquilateralTriangleImage((MinesweepWorld.CELL_SIZE / 3), 
-        OutlineMode.SOLID, new Color(200, 10, 10));
-    tri = new RotateImage(tri, 90.0);
-    flag = new OverlayOffsetImage(tri, -(MinesweepWorld.CELL_SIZE / 8), 
-        (MinesweepWorld.CELL_SIZE / 8), flag);
-    return flag;
+  void testBoardNeighbours(Tester t) {
+    initCond();
+    
+    int[] touching = new int[8];
+    t.checkExpect(board3x3.neighbours(0, touching), 3);
+    t.checkExpect(Arrays.copyOf(touching, 3), new int[] {1, 3, 4});
+    t.checkExpect(board3x3.neighbours(4, touching), 8);
+    t.checkExpect(touching, new int[] {0, 1, 2, 3, 5, 6, 7, 8});
+    t.checkExpect(board3x3.neighbours(5, touching), 5);
+    t.checkExpect(Arrays.copyOf(touching, 5), new int[] {1, 2, 4, 7, 8});
   }
   
-  // Gets the image for a clock
-  WorldImage clockImage() {
-    WorldImage clockBase = new CircleImage((MinesweepWorld.CELL_SIZE / 2) - 3, 
-        OutlineMode.SOLID, new Color(255, 230, 60, 255));
-    WorldImage hand1 = new RectangleImage(2, MinesweepWorld.CELL_SIZE / 4, 
-        OutlineMode.SOLID, Color.black);
-    WorldImage hand2 = new RectangleImage(MinesweepWorld.CELL_SIZE / 5, 2, 
-        OutlineMode.SOLID, Color.black);
-    WorldImage hands = new OverlayOffsetImage(hand1, (MinesweepWorld.CELL_SIZE / 10),
-        (MinesweepWorld.CELL_SIZE / 8), hand2);
-    WorldImage face = new OverlayOffsetImage(hands, -(MinesweepWorld.CELL_SIZE / 10),
-        (MinesweepWorld.CELL_SIZE / 8) - 2, new CircleImage(MinesweepWorld.CELL_SIZE / 3, 
-        OutlineMode.SOLID, Color.white));
-    clockBase = new OverlayImage(face, clockBase);
-    WorldImage buttonTop = new EllipseImage((MinesweepWorld.CELL_SIZE / 3), 
-        (MinesweepWorld.CELL_SIZE / 6), OutlineMode.SOLID, new Color(255, 230, 60, 255));
-    WorldImage pole = new RectangleImage((MinesweepWorld.CELL_SIZE / 8),
-        (MinesweepWorld.CELL_SIZE / 2), OutlineMode.SOLID, new Color(255, 230, 60, 255));
-    WorldImage button = new OverlayOffsetImage(buttonTop, 0, 
-        (MinesweepWorld.CELL_SIZE / 4), pole);
-    WorldImage clock = new OverlayOffsetImage(clockBase, 0, 
-        -(MinesweepWorld.CELL_SIZE / 3), button);
-    return clock;
+  void testTopology(Tester t) throws IOException {
+    int[] touching = new int[Topology.MAX_DEGREE];
+    
+    // odd rows of a hex board sit half a cell to the right
+    Topology hex = Topology.of(Topology.HEX, 4, 4);
+    t.checkExpect(hex.neighbours(5, touching), 6);
+    t.checkExpect(Arrays.copyOf(touching, 6), new int[] {1, 2, 4, 6, 9, 10});
+    t.checkExpect(hex.neighbours(9, touching), 6);
+    t.checkExpect(Arrays.copyOf(touching, 6), new int[] {4, 5, 8, 10, 12, 13});
+    t.checkExpect(hex.neighbours(0, touching), 2);
+    t.checkExpect(Arrays.copyOf(touching, 2), new int[] {1, 4});
+    
+    // a torus wraps around, touching each cell once even when it is small
+    Topology torus = Topology.of(Topology.TORUS, 3, 3);
+    t.checkExpect(torus.neighbours(0, touching), 8);
+    t.checkExpect(touching, new int[] {8, 6, 7, 2, 1, 5, 3, 4});
+    t.checkExpect(Topology.of(Topology.TORUS, 2, 2).neighbours(0, touching), 3);
+    t.checkExpect(Topology.of(Topology.SQUARE, 3, 3).neighbours(4, touching), 8);
+    
+    // a graph is whatever links it is given
+    Topology ring = new CsrTopology(4, new int[][] {{0, 1}, {1, 2}, {2, 3}, {3, 0}});
+    t.checkExpect(ring.neighbours(0, touching), 2);
+    t.checkExpect(Arrays.copyOf(touching, 2), new int[] {1, 3});
+    t.checkExpect(ring.name(), "graph");
+    int[][] star = new int[9][];
+    for (int i = 0; i < 9; i = i + 1) {
+      star[i] = new int[] {0, i + 1};
+    }
+    t.checkConstructorException(new IllegalArgumentException("cell 0 has more than 8 links"),
+        "CsrTopology", 10, star);
+    t.checkConstructorException(new IllegalArgumentException("bad link [1, 1]"),
+        "CsrTopology", 2, new int[][] {{1, 1}});
+    
+    // mines are counted, moved and spread from on any topology
+    Game onTorus = new Game(Topology.of(Topology.TORUS, 5, 5), 3, 4);
+    int total = 0;
+    for (int i = 0; i < 25; i = i + 1) {
+      total = total + onTorus.board.getContacts(i);
+    }
+    t.checkExpect(total, 24);
+    t.checkExpect(onTorus.kind(), "torus 5x5/3/random");
+    Game onHex = new Game(hex, 0, 1);
+    t.checkExpect(onHex.revealAt(0, true), 16);
+    t.checkExpect(onHex.status(), GameStatus.WON);
+    Game onRing = new Game(ring, 1, 2);
+    onRing.revealAt(onRing.board.mines.nextClearBit(0), true);
+    t.checkExpect(onRing.board.numRevealed >= 1, true);
+    
+    // games that are not square are saved and played back as they were
+    Path file = Files.createTempFile("minesweeper", ".sav");
+    onTorus.revealAt(12, true);
+    onTorus.toggleFlagAt(onTorus.board.revealed.nextClearBit(0));
+    new SaveFile().save(onTorus, file);
+    Game loaded = new SaveFile().read(file);
+    t.checkExpect(loaded.topology.kind, Topology.TORUS);
+    t.checkExpect(loaded.summary(), onTorus.summary());
+    t.checkExpect(loaded.board.contacts, onTorus.board.contacts);
+    Files.delete(file);
+    t.checkException(new IllegalArgumentException("a graph board cannot be saved"),
+        new SaveFile(), "save", onRing, file);
+    Recorder recorder = new Recorder();
+    Game recorded = new Game(hex, 3, 5);
+    recorded.record(recorder);
+    recorded.revealAt(5, true);
+    recorded.newGame();
+    recorded.revealAt(10, true);
+    recorder.check(recorded);
+    Replayer replayer = new Replayer();
+    t.checkExpect(replayer.replay(recorder.toBytes()), true);
+    t.checkExpect(replayer.game.topology.kind, Topology.HEX);
+    t.checkException(new IllegalArgumentException("a graph board cannot be recorded"),
+        onRing, "record", new Recorder());
   }
   
-  // Gets the image for the restart button
-  WorldImage restartImage() {
-    WorldImage outline = new CircleImage(MinesweepWorld.CELL_SIZE / 2, 
-        OutlineMode.SOLID, Color.white);
-    WorldImage center = new CircleImage(MinesweepWorld.CELL_SIZE / 3, 
-        OutlineMode.SOLID, new Color(80, 155, 0, 255));
-    WorldImage cutoutBase = new CircleImage(MinesweepWorld.CELL_SIZE / 2, 
-        OutlineMode.SOLID, new Color(80, 155, 0, 255));
-    WorldImage cutout = new CropImage(MinesweepWorld.CELL_SIZE / 2, 
-        MinesweepWorld.CELL_SIZE / 2, MinesweepWorld.CELL_SIZE, 
-        MinesweepWorld.CELL_SIZE, cutoutBase);
-    WorldImage circleBase = new OverlayImage(center, outline);
-    WorldImage circle = new OverlayOffsetImage(cutout, (-MinesweepWorld.CELL_SIZE / 2) - 2,
-        (-MinesweepWorld.CELL_SIZE / 2) - 2, circleBase);
-    WorldImage arrowHead = new TriangleImage(new Posn(0, 0), 
-        new Posn((MinesweepWorld.CELL_SIZE / 2), 0), 
-        new Posn((MinesweepWorld.CELL_SIZE / 4), (MinesweepWorld.CELL_SIZE / 4)),
-        OutlineMode.SOLID, Color.white);
-    WorldImage button = new OverlayOffsetImage(arrowHead, -(MinesweepWorld.CELL_SIZE / 6),
-        (MinesweepWorld.CELL_SIZE / 6), circle);
-    WorldImage buttonRotated = new RotateImage(button, 45);
-    buttonRotated = new CropImage((MinesweepWorld.CELL_SIZE / 5), 0, 
-        (MinesweepWorld.CELL_SIZE + 2), ((6 * MinesweepWorld.CELL_SIZE) / 5),
-        buttonRotated);
-    return buttonRotated;
+  void testCountRows(Tester t) {
+    // every width around a word boundary counts the same as counting cell by cell
+    for (int width : new int[] {1, 2, 63, 64, 65, 130}) {
+      for (int height : new int[] {1, 2, 5}) {
+        Board board = new Board(width, height);
+        board.setMines((width * height) / 3, new SplittableRandom(width + height));
+        board.countRows();
+        byte[] rows = board.contacts.clone();
+        board.countEach();
+        t.checkExpect(rows, board.contacts);
+      }
+    }
+    Board full = new Board(70, 3);
+    full.setMines(210, new SplittableRandom(1));
+    full.setContacts();
+    t.checkExpect(full.getContacts(0), 3);
+    t.checkExpect(full.getContacts(71), 8);
+    t.checkExpect(full.getContacts(139), 5);
+    t.checkExpect(Board.SPREAD[0x81], 0x0100000000000001L);
   }
-
-  // converts a point to a posn
-  Posn pointToPosn(Point p) {
-    return new Posn(p.x, p.y);
+  
+  void testBoardSetContacts(Tester t) {
+    initCond();
+    
+    t.checkExpect(board2x2.getContacts(0), 1);
+    t.checkExpect(board2x2.getContacts(3), 1);
+    board3x3.placeMine(0);
+    board3x3.placeMine(1);
+    board3x3.placeMine(2);
+    board3x3.setContacts();
+    t.checkExpect(board3x3.getContacts(3), 2);
+    t.checkExpect(board3x3.getContacts(4), 3);
+    t.checkExpect(board3x3.getContacts(8), 0);
+    t.checkExpect(board3x3.numMines, 3);
   }
   
-  // Returns the font size based on the board size
-  int getFontSize(int boardSize) {
-    if (boardSize >= 70) {
-      return 5;
-    }
-    else if (boardSize >= 55) {
-      return 8;
-    }
-    else if (boardSize >= 40) {
-      return 10;
-    }
-    else if (boardSize >= 30) {
-      return 15;
-    }
-    else if (boardSize >= 25) {
-      return 20;
-    }
-    else if (boardSize >= 20) {
-      return 22;
-    }
-    else if (boardSize >= 15) {
-      return 25;
-    }
-    else if (boardSize >= 10) {
-      return 30;
-    }
-    else {
-      return 35;
-    }
+  void testBoardReveal(Tester t) {
+    initCond();
+    
+    board3x3.placeMine(2);
+    board3x3.setContacts();
+    board3x3.toggleFlag(6);
+    t.checkExpect(board3x3.reveal(3), 7);
+    t.checkExpect(board3x3.numRevealed, 7);
+    t.checkExpect(Arrays.copyOf(board3x3.lastRevealed, 7), new int[] {3, 0, 1, 4, 7, 5, 8});
+    t.checkExpect(board3x3.isRevealed(2), false);
+    t.checkExpect(board3x3.isRevealed(6), false);
+    t.checkExpect(board3x3.allSafeRevealed(), false);
+    t.checkExpect(board3x3.reveal(3), 0);
+    t.checkExpect(board3x3.reveal(6), 0);
+    board3x3.toggleFlag(6);
+    t.checkExpect(board3x3.reveal(6), 1);
+    t.checkExpect(board3x3.allSafeRevealed(), true);
+    
+    Board open = new Board(2000, 1000);
+    open.setContacts();
+    t.checkExpect(open.reveal(open.index(500, 1000)), 2000000);
+    t.checkExpect(open.allSafeRevealed(), true);
   }
-}
 
-// represents the data of our world
-class MinesweepWorld extends World {
-  ArrayList<Cell> board;
-  int flags;
-  ArrayList<Cell> mines;
-  boolean mineHit;
-  int numClicks;
-  int ticks;
-  int secs;
-  boolean gameStarted;
-  boolean gameFinished;
-  int version;
-  HashMap<Integer, ArrayList<Integer>> verAndFlagList;
-  ArrayList<Integer> times;
- 
-  MinesweepWorld(ArrayList<Cell> board, int flags, ArrayList<Cell> mines) {
-    this.board = board;
-    this.flags = flags;
-    this.mines = mines;
-    this.mineHit = false;
-    this.numClicks = 0;
-    this.ticks = 0;
-    this.secs = 0;
-    this.gameStarted = false;
-    this.gameFinished = false;
-    this.version = 0;
-    this.verAndFlagList = new HashMap<Integer, ArrayList<Integer>>();
-    this.times = new ArrayList<Integer>();
-  }
- 
-  MinesweepWorld() {
-    this.board = this.setBoard();
-    this.flags = MinesweepWorld.NUM_MINES;
-    this.mines = new ArrayList<Cell>();
-    this.mineHit = false;
-    this.numClicks = 0;
-    this.ticks = 0;
-    this.secs = 0;
-    this.gameStarted = false;
-    this.gameFinished = false;
-    this.version = 0;
-    this.verAndFlagList = new HashMap<Integer, ArrayList<Integer>>();
-    this.times = new ArrayList<Integer>();
-    this.makeTopConnections();
-    this.makeRightConnections();
-    this.makeBottomConnections();
-    this.makeLeftConnections();
-    this.setMines();
-    this.setContacts();
+  void testCheckIfDone(Tester t) {
+    initCond();
+    
+    board2x2.reveal(0);
+    world2x2.game.checkIfDone();
+    t.checkExpect(world2x2.game.gameFinished, false);
+    board2x2.toggleFlag(1);
+    board2x2.reveal(3);
+    t.checkExpect(board2x2.numFlagged, 1);
+    t.checkExpect(board2x2.numRevealed, 2);
+    world2x2.game.checkIfDone();
+    t.checkExpect(world2x2.game.gameFinished, false);
+    board2x2.toggleFlag(1);
+    board2x2.reveal(1);
+    t.checkExpect(board2x2.numFlagged, 0);
+    world2x2.game.secs = 12;
+    world2x2.game.checkIfDone();
+    world2x2.onTick();
+    world2x2.onTick();
+    t.checkExpect(world2x2.game.gameFinished, true);
+    t.checkExpect(world2x2.game.leaderboard.stats(world2x2.game.kind()).count(), 1L);
+    t.checkExpect(world2x2.game.leaderboard.best(world2x2.game.kind()), 12);
+    
+    world3x3.game.mineHit = true;
+    world3x3.game.checkIfDone();
+    t.checkExpect(world3x3.game.gameFinished, true);
+    t.checkExpect(world3x3.game.leaderboard.hasBest(world3x3.game.kind()), false);
   }
   
-  MinesweepWorld(HashMap<Integer, ArrayList<Integer>> verAndFlagList) {
-    this.board = this.setBoard();
-    this.flags = MinesweepWorld.NUM_MINES;
-    this.mines = new ArrayList<Cell>();
-    this.mineHit = false;
-    this.numClicks = 0;
-    this.ticks = 0;
-    this.secs = 0;
-    this.gameStarted = false;
-    this.gameFinished = false;
-    this.version = 0;
-    this.verAndFlagList = new HashMap<Integer, ArrayList<Integer>>();
-    this.times = new ArrayList<Integer>();
-    this.makeTopConnections();
-    this.makeRightConnections();
-    this.makeBottomConnections();
-    this.makeLeftConnections();
-    this.setMines();
-    this.setContacts();
+  void testSceneCache(Tester t) {
+    initCond();
+    
+    BoardView view = world3x3.view;
+    board3x3.placeMine(2);
+    board3x3.setContacts();
+    world3x3.game.numClicks = 1;
+    WorldScene first = world3x3.makeScene();
+    t.checkExpect(world3x3.makeScene() == first, true);
+    world3x3.onTick();
+    t.checkExpect(world3x3.makeScene() == first, true);
+    WorldImage corner = world3x3.cellImages[8];
+    WorldImage top = world3x3.cellImages[1];
+    world3x3.onMousePressed(new Posn(view.cellX(board3x3, 6), view.cellY(board3x3, 6)), 
+        "LeftButton");
+    t.checkExpect(world3x3.dirtyCells.cardinality(), 8);
+    WorldScene second = world3x3.makeScene();
+    t.checkExpect(second == first, false);
+    t.checkExpect(world3x3.dirtyCells.isEmpty(), true);
+    t.checkExpect(world3x3.cellImages[8] == corner, false);
+    t.checkExpect(world3x3.cellImages[1] == top, false);
+    t.checkExpect(world3x3.cellImages[2], view.drawCell(board3x3, 2));
+    t.checkExpect(world3x3.cellImages[8], view.drawCell(board3x3, 8));
+    world3x3.onMousePressed(new Posn(0, 0), "LeftButton");
+    t.checkExpect(world3x3.makeScene() == second, true);
   }
   
-  // a constant to represent the board size
-  static int BOARD_SIZE = 18;
- 
-  // a constant to represent the cell size based on the board size
-  static int CELL_SIZE = (650 / MinesweepWorld.BOARD_SIZE);
-  
-  // a constant to represent the number of mines
-  static int NUM_MINES = 40;
-  
-  // a constant to represent the font size
-  static int FONT_SIZE = new Utils().getFontSize(MinesweepWorld.BOARD_SIZE);
-  
-  // makes the flag image easily accessible
-  static WorldImage FLAG = new Utils().flagImage();
-  
-  // makes the clock image easily accessible
-  static WorldImage CLOCK = new Utils().clockImage();
-  
-  // makes the restart image easily accessible
-  static WorldImage RESTART_BUTTON = new Utils().restartImage();
- 
-  // Creates a starting board
-  ArrayList<Cell> setBoard() {
-    ArrayList<Cell> start = new ArrayList<Cell>();
-    for (int i = 0; i < (MinesweepWorld.BOARD_SIZE * MinesweepWorld.BOARD_SIZE); i = i + 1) {
-      start.add(new Cell(((i % MinesweepWorld.BOARD_SIZE) * MinesweepWorld.CELL_SIZE)
-          + MinesweepWorld.CELL_SIZE,
-          (((i - (i % MinesweepWorld.BOARD_SIZE)) / MinesweepWorld.BOARD_SIZE)
-              * MinesweepWorld.CELL_SIZE)
-          + (3 * MinesweepWorld.CELL_SIZE),
-          (i % MinesweepWorld.BOARD_SIZE) + 1,
-          ((i - (i % MinesweepWorld.BOARD_SIZE)) / MinesweepWorld.BOARD_SIZE) + 1));
+  void testGame(Tester t) {
+    Game game = new Game(9, 9, 10, 21);
+    t.checkExpect(game.status(), GameStatus.READY);
+    t.checkExpect(game.reveal(4, 4) >= 9, true);
+    t.checkExpect(game.status(), GameStatus.PLAYING);
+    t.checkExpect(game.board.getContacts(game.board.index(4, 4)), 0);
+    int hidden = game.board.revealed.nextClearBit(0);
+    t.checkExpect(game.toggleFlag(game.board.row(hidden), game.board.col(hidden)), true);
+    t.checkExpect(game.flags, 9);
+    t.checkExpect(game.toggleFlag(4, 4), false);
+    t.checkExpect(game.reveal(game.board.row(hidden), game.board.col(hidden)), 0);
+    game.toggleFlagAt(hidden);
+    for (int i = 0; i < game.board.size; i = i + 1) {
+      if (!game.board.isMine(i)) {
+        game.revealAt(i, true);
+      }
     }
-    return start;
+    t.checkExpect(game.cellsLeft(), 0);
+    t.checkExpect(game.status(), GameStatus.WON);
+    t.checkExpect(game.leaderboard.stats(game.kind()).count(), 1L);
+    t.checkExpect(game.tick(), false);
+    
+    game.newGame();
+    t.checkExpect(game.status(), GameStatus.READY);
+    t.checkExpect(game.board.numMines, 10);
+    game.reveal(0, 0);
+    int mine = game.board.mines.nextSetBit(0);
+    t.checkExpect(game.revealAt(mine, true), 1);
+    t.checkExpect(game.status(), GameStatus.LOST);
+    t.checkExpect(game.board.revealed.cardinality(), 
+        game.board.numRevealed + game.board.numMines);
+    t.checkExpect(game.revealAt(0, true), 0);
   }
   
-  // EFFECT: sets some cells in the board as mines based on the number of flags
-  void setMines() {
-    ArrayList<Integer> allInts = new ArrayList<Integer>();
-    for (int i = 0; i < this.board.size(); i = i + 1) {
-      allInts.add(i);
-    }
-    int minesLeft = MinesweepWorld.NUM_MINES;
-    int curSize = this.board.size();
-    while (minesLeft > 0) {
-      int rand = new Random().nextInt(curSize);
-      int curIdx = allInts.get(rand);
-      Cell curMine = this.board.get(curIdx);
-      curMine.mine = true;
-      this.mines.add(curMine);
-      minesLeft = minesLeft - 1;
-      allInts.remove(rand);
-      curSize = curSize - 1;
-    }
+  void testSimulator(Tester t) {
+    Simulator one = new Simulator(9, 9, 10, new RandomPlayer(), 1);
+    Simulator four = new Simulator(9, 9, 10, new RandomPlayer(), 4);
+    SimStats first = one.run(1000, 8);
+    t.checkExpect(first.games, 1000L);
+    t.checkExpect(first.revealed >= 9000, true);
+    t.checkExpect(first.maxClicks > 1, true);
+    t.checkExpect(four.run(1000, 8), first);
+    t.checkExpect(four.played.sum(), 1000L);
+    one.shutdown();
+    four.shutdown();
   }
   
-  // EFFECT: changes the number for each cell's mineContacts field in the board
-  void setContacts() {
-    for (Cell c : this.board) {
-      c.minesInContact();
-    }
-  }
-
-  // makes the scene for the game
-  public WorldScene makeScene() {
-    WorldScene world = new WorldScene(0, 0);
-    for (int i = 0; i < this.board.size(); i = i + 1) {
-      Cell currentCell = this.board.get(i);
-      world.placeImageXY(currentCell.drawCell(), currentCell.x, currentCell.y);
-    }
-    WorldImage infoBase = new RectangleImage((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE), 
-        (2 * MinesweepWorld.CELL_SIZE), OutlineMode.SOLID, new Color(80, 155, 0, 255));
-    WorldImage flag = new ScaleImage(MinesweepWorld.FLAG, 1.3);
-    WorldImage numFlags = new TextImage(Integer.toString(this.flags), MinesweepWorld.FONT_SIZE, FontStyle.BOLD, Color.white);
-    WorldImage flagCount = new OverlayOffsetImage(flag, MinesweepWorld.CELL_SIZE, 0, numFlags);
-    WorldImage time = new TextImage(Integer.toString(this.secs), MinesweepWorld.FONT_SIZE, FontStyle.BOLD, Color.white);
-    WorldImage timer = new OverlayOffsetImage(MinesweepWorld.CLOCK, MinesweepWorld.CELL_SIZE, 0, time);
-    infoBase = new OverlayOffsetImage(MinesweepWorld.RESTART_BUTTON, 
-        (MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 4, 0,
-        infoBase);
-    infoBase = new OverlayImage(flagCount, infoBase);
-    infoBase = new OverlayOffsetImage(timer, 
-        -(MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 4, 0, infoBase);
-    world.placeImageXY(infoBase, 
-        ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 2) 
-        + (MinesweepWorld.CELL_SIZE / 2), 
-        (3 * MinesweepWorld.CELL_SIZE / 2));
-    if (this.mineHit) {
-      for (Cell c : this.mines) {
-        c.clicked = true;
-        c.color = c.revealColor();
-      }
-    }
-    if (this.gameFinished) {
-      WorldImage background = new RectangleImage(
-          (MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE),
-          (MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) + (2 * MinesweepWorld.CELL_SIZE),
-          OutlineMode.SOLID, new Color(0, 0, 0, 150));
-      world.placeImageXY(background, 
-          ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 2) 
-          + (MinesweepWorld.CELL_SIZE / 2),
-          ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 2) 
-          + ((3 * MinesweepWorld.CELL_SIZE) / 2));
-      WorldImage text1 = new TextImage(this.endMessage(), 25, FontStyle.BOLD, Color.white);
-      WorldImage text1Shadow = new TextImage(this.endMessage(), 25, 
-          FontStyle.BOLD, new Color(0, 0, 0, 200));
-      text1 = new OverlayOffsetImage(text1, 2, 2, text1Shadow);
-      if (!(this.times.isEmpty())) {
-        WorldImage text2 = new TextImage(this.bestTime(), 25, FontStyle.BOLD, Color.white);
-        WorldImage text2Shadow = new TextImage(this.bestTime(), 25, 
-            FontStyle.BOLD, new Color(0, 0, 0, 200));
-        text2 = new OverlayOffsetImage(text2, 2, 2, text2Shadow);
-        text1 = new AboveImage(text1, text2);
+  void testSolver(Tester t) {
+    // a row of three cells with a mine on the right: the left's zero shows the middle is
+    // safe, and then the middle's one shows the right is a mine
+    Board row = new Board(3, 1);
+    row.placeMine(2);
+    row.setContacts();
+    Game rowGame = new Game(row, 1);
+    rowGame.useSolver();
+    rowGame.revealAt(0, false);
+    t.checkExpect(rowGame.solver.nextSafe(), 1);
+    rowGame.revealAt(1, false);
+    t.checkExpect(rowGame.solver.isMine(2), true);
+    t.checkExpect(rowGame.solver.nextSafe(), -1);
+    
+    // a 1-2-1 along the top of a 3x2 board needs the subset rule: the outer ones share
+    // every hidden cell with the two, so the cells only the two can see hold its extra mine
+    Board pattern = new Board(3, 2);
+    pattern.placeMine(3);
+    pattern.placeMine(5);
+    pattern.setContacts();
+    Game patternGame = new Game(pattern, 2);
+    patternGame.useSolver();
+    // the first click touches every cell, so no mine is moved away from it
+    patternGame.revealAt(1, false);
+    patternGame.revealAt(0, false);
+    patternGame.revealAt(2, false);
+    t.checkExpect(patternGame.solver.isMine(3), true);
+    t.checkExpect(patternGame.solver.isMine(5), true);
+    t.checkExpect(patternGame.solver.nextSafe(), 4);
+    
+    // what the solver works out is always right
+    int marked = 0;
+    boolean allRight = true;
+    for (long seed = 0; seed < 20; seed = seed + 1) {
+      Game game = new Game(16, 16, 40, seed);
+      game.useSolver();
+      game.reveal(8, 8);
+      int safe = game.solver.nextSafe();
+      while ((safe >= 0) && !game.gameFinished) {
+        game.revealAt(safe, true);
+        safe = game.solver.nextSafe();
       }
-      world.placeImageXY(text1, ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 2) 
-          + (MinesweepWorld.CELL_SIZE / 2),
-          ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) / 2) 
-          + ((3 * MinesweepWorld.CELL_SIZE) / 2));
+      BitSet wrong = (BitSet) game.solver.mines.clone();
+      wrong.andNot(game.board.mines);
+      allRight = allRight && !game.mineHit && wrong.isEmpty();
+      marked = marked + game.solver.mines.cardinality();
     }
-    return world;
+    t.checkExpect(allRight, true);
+    t.checkExpect(marked > 100, true);
+    
+    SimStats withSolver = new Simulator(9, 9, 10, new SolverPlayer(), 1).run(500, 3);
+    SimStats random = new Simulator(9, 9, 10, new RandomPlayer(), 1).run(500, 3);
+    t.checkExpect(withSolver.winRate() > random.winRate(), true);
   }
   
-  // EFFECT: alters the state of the game based on the clicked cell
-  public void onMousePressed(Posn p, String buttonName) {
-    int curVersion = this.version;
-    boolean cellFound = false;
-    boolean searchedAllCells = false;
-    Cell cell = null;
-    
-    // finds the cell that was clicked
-    for (int i = 0; !cellFound; i = i + 1) {
-      if ((this.board.get(i).x - (MinesweepWorld.CELL_SIZE / 2)) <= p.x 
-          && (this.board.get(i).x + (MinesweepWorld.CELL_SIZE / 2)) >= p.x 
-          && (this.board.get(i).y - (MinesweepWorld.CELL_SIZE / 2)) <= p.y 
-          && (this.board.get(i).y + (MinesweepWorld.CELL_SIZE / 2)) >= p.y) {
-        cell = this.board.get(i);
-        cellFound = true;
-      }
-      else {
-        if ((this.board.size() - 1) == i) {
-          cellFound = true;
-          searchedAllCells = true;
-        }
-      }
-    }
-    if ((p.x >= (((MinesweepWorld.CELL_SIZE * MinesweepWorld.BOARD_SIZE) / 4) 
-        - (MinesweepWorld.CELL_SIZE / 2)))
-        && (p.x <= (((MinesweepWorld.CELL_SIZE * MinesweepWorld.BOARD_SIZE) / 4) 
-            + ((3 * MinesweepWorld.CELL_SIZE) / 2)))
-        && (p.y >= MinesweepWorld.CELL_SIZE)
-        && (p.y <= (2 * MinesweepWorld.CELL_SIZE))) {
-      this.newGame();
-      }
-    else if (this.gameFinished || searchedAllCells) {
-      // do nothing
-    }
-    else if (buttonName.equals("RightButton") && !cell.clicked) {
-      if (cell.flagged) {
-        this.flags = flags + 1;
-        }
-      else {
-        this.flags = flags - 1;
-        }
-      cell.flagged = !(cell.flagged);
-      }
-    else if (cell.flagged) {
-        //do nothing
-      }
-    else {
-      if ((this.numClicks == 0) && ((cell.mineContacts != 0) || cell.mine)) {
-        this.storeFlags();
-        MinesweepWorld temp = new MinesweepWorld(this.verAndFlagList);
-        this.board = temp.board;
-        this.flags = temp.flags;
-        this.mines = temp.mines;
-        this.mineHit = false;
-        this.numClicks = 0;
-        this.ticks = 0;
-        this.secs = 0;
-        this.version = curVersion + 1;
-        this.onMousePressed(p, buttonName);
-        this.replaceFlags();
-        this.gameStarted = true;
+  void testProbability(Tester t) {
+    // a lone one between two hidden cells with one mine on the board: either is as likely
+    Board row = new Board(3, 1);
+    row.placeMine(0);
+    row.setContacts();
+    Game rowGame = new Game(row, 1);
+    rowGame.useSolver();
+    rowGame.revealAt(1, false);
+    ProbabilityEngine odds = rowGame.solver.probabilities();
+    odds.update();
+    t.checkInexact(odds.chance(0), 0.5, 0.0001);
+    t.checkInexact(odds.chance(2), 0.5, 0.0001);
+    t.checkInexact(odds.chance(1), 0.0, 0.0001);
+    // nothing changed, so the component is not counted again
+    int solved = odds.solved;
+    odds.update();
+    t.checkExpect(odds.solved, solved);
+    
+    // the chances match trying every placement of the mines, part way through games
+    double worst = 0;
+    int compared = 0;
+    for (long seed = 0; seed < 30; seed = seed + 1) {
+      Game game = new Game(5, 5, 5, seed);
+      game.useSolver();
+      game.reveal(2, 2);
+      int safe = game.solver.nextSafe();
+      for (int moves = 0; (moves < (int) (seed % 3)) && (safe >= 0); moves = moves + 1) {
+        game.revealAt(safe, true);
+        safe = game.solver.nextSafe();
       }
-      else {
-        this.gameStarted = true;
-        this.numClicks = numClicks + 1;
-        cell.clicked = true;
-        cell.color = cell.revealColor();
-        if (cell.mine) {
-          this.mineHit = true;
-          this.gameFinished = true;
+      if (!game.gameFinished) {
+        double[] exact = this.bruteOdds(game.board);
+        ProbabilityEngine engine = game.solver.probabilities();
+        engine.update();
+        for (int i = 0; i < game.board.size; i = i + 1) {
+          worst = Math.max(worst, Math.abs(engine.chance(i) - exact[i]));
         }
-      }
-      if (cell.mineContacts == 0 && !cell.mine && buttonName.equals("LeftButton")) {
-        cell.top.attemptSpread();
-        cell.right.attemptSpread();
-        cell.bottom.attemptSpread();
-        cell.left.attemptSpread();
-        cell.top.right.attemptSpread();
-        cell.top.left.attemptSpread();
-        cell.bottom.right.attemptSpread();
-        cell.bottom.left.attemptSpread();
+        compared = compared + 1;
       }
     }
-}
-
-  // EFFECT: In the verAndFlagList field, maps the integer representing the 
-  // current version to an array list which stores the index of each flagged cell
-  void storeFlags() {
-    if (this.version == 0) {
-      ArrayList<Integer> flagIndices = new ArrayList<Integer>();
-      for (Cell c : this.board) {
-        if (c.flagged) {
-          flagIndices.add(this.board.indexOf(c));
+    t.checkExpect(compared > 10, true);
+    t.checkInexact(worst, 0.0, 0.000001);
+    
+    // after each guess, only the numbers around what changed are looked at again, and
+    // the chances are the same as working everything out from the start
+    double apart = 0;
+    int moves = 0;
+    boolean sameMoves = true;
+    for (long seed = 0; seed < 5; seed = seed + 1) {
+      Game guessed = new Game(16, 16, 40, seed);
+      guessed.useSolver();
+      ProbabilityEngine kept = guessed.solver.probabilities();
+      guessed.reveal(8, 8);
+      while (!guessed.gameFinished) {
+        int next = kept.safest();
+        kept.update();
+        ProbabilityEngine fresh = new ProbabilityEngine(guessed.solver);
+        fresh.update();
+        for (int i = 0; i < guessed.board.size; i = i + 1) {
+          apart = Math.max(apart, Math.abs(kept.chance(i) - fresh.chance(i)));
         }
+        sameMoves = sameMoves && (next == fresh.safest());
+        guessed.revealAt(next, true);
+        moves = moves + 1;
       }
-      this.verAndFlagList.put(0, flagIndices);
-    }
-    else {
-      // do nothing
     }
+    t.checkExpect(moves > 50, true);
+    t.checkExpect(sameMoves, true);
+    t.checkInexact(apart, 0.0, 0.000000001);
+    
+    // more mines left than cells to put them in gives every cell an even share, rather
+    // than no number at all
+    odds.combine(new ArrayList<Component>(), 3, 2);
+    t.checkExpect(odds.interior, 1.0);
+    odds.combine(new ArrayList<Component>(), 1, 0);
+    t.checkExpect(odds.interior, 0.0);
+    
+    // guessing the safest cell wins more than guessing at random
+    SimStats guessing = new Simulator(9, 9, 10, new SolverPlayer(), 1).run(300, 3);
+    SimStats random = new Simulator(9, 9, 10, new RandomPlayer(), 1).run(300, 3);
+    t.checkExpect(guessing.winRate() > random.winRate(), true);
   }
   
-  // EFFECT: Makes some cells flagged based on which were flagged in the original version
-  // of this MinesweepWorld
-  void replaceFlags() {
-    ArrayList<Integer> firstList = this.verAndFlagList.get(0);
-    for (int i : firstList) {
-      //this.board.get(i).clicked = false;
-      this.board.get(i).flagged = true;
+  void testNoGuess(Tester t) {
+    NoGuessGenerator gen = new NoGuessGenerator(9, 9, 10, 1);
+    Board board = new Board(9, 9);
+    t.checkExpect(gen.generate(board, 5, 40), true);
+    t.checkExpect(board.numMines, 10);
+    t.checkExpect(board.isMine(40), false);
+    t.checkExpect(board.getContacts(40), 0);
+    t.checkExpect(board.numRevealed, 0);
+    // with one worker, the same seed always gives the same board
+    Board again = new Board(9, 9);
+    gen.generate(again, 5, 40);
+    t.checkExpect(again.mines, board.mines);
+    t.checkExpect(gen.solvable(again, new Solver(again), 40), true);
+    t.checkExpect(gen.boards, 2L);
+    t.checkExpect(gen.tried.sum() >= 2, true);
+    t.checkExpect((gen.acceptanceRate() > 0) && (gen.acceptanceRate() <= 1), true);
+    t.checkExpect(gen.boardsPerSecond() > 0, true);
+    gen.shutdown();
+    
+    // a game that needs no guessing places its mines on the first click, and the solver
+    // then clears it without ever running out of safe cells
+    Game game = new Game(9, 9, 10, 3);
+    game.useNoGuess(2);
+    game.newGame();
+    t.checkExpect(game.board.numMines, 0);
+    game.useSolver();
+    game.reveal(0, 8);
+    t.checkExpect(game.board.numMines, 10);
+    int safe = game.solver.nextSafe();
+    while (safe >= 0) {
+      game.revealAt(safe, true);
+      safe = game.solver.nextSafe();
     }
+    t.checkExpect(game.status(), GameStatus.WON);
+    game.generator.shutdown();
+    
+    // flags placed before the mines are still there once they are
+    Game flagged = new Game(9, 9, 10, 4);
+    flagged.useNoGuess(1);
+    flagged.newGame();
+    flagged.toggleFlagAt(0);
+    flagged.reveal(4, 4);
+    t.checkExpect(flagged.board.isFlagged(0), true);
+    t.checkExpect(flagged.board.numFlagged, 1);
+    t.checkExpect(flagged.flags, 9);
+    t.checkExpect(flagged.board.numMines, 10);
+    flagged.generator.shutdown();
+    
+    // when there are too many mines for any board to work, it gives up and the game
+    // falls back to an ordinary board
+    Game full = new Game(5, 5, 20, 1);
+    full.useNoGuess(1);
+    full.generator.maxTries = 50;
+    full.newGame();
+    full.reveal(2, 2);
+    t.checkExpect(full.generator.boards, 0L);
+    t.checkExpect(full.generator.tried.sum(), 50L);
+    t.checkExpect(full.board.numMines, 20);
+    t.checkExpect(full.board.isMine(12), false);
+    full.generator.shutdown();
   }
-
-//  // EFFECT: alters the state of the game based on cell being hovered over
-//  public void onMouseEntered(Posn p) {
-//    boolean found = false;
-//    Cell cell = null;
-//      
-//    for (int i = 0; i < this.board.size(); i = i + 1) {
-//        if ((this.board.get(i).x - (MinesweepWorld.CELL_SIZE / 2)) <= p.x 
-//            && (this.board.get(i).x + (MinesweepWorld.CELL_SIZE / 2)) >= p.x 
-//            && (this.board.get(i).y - (MinesweepWorld.CELL_SIZE / 2)) <= p.y 
-//            && (this.board.get(i).y + (MinesweepWorld.CELL_SIZE / 2)) >= p.y) {
-//          cell = this.board.get(i);
-//          found = true;
-//        }
-//      }
-//      if (!(found) || cell.clicked) {
-//        // do nothing
-//      }
-//      else {
-//        cell.color = new Color(205, 255, 145, 255);
-//      }
-//    }
-//  
-//  // EFFECT: alters the state of the game based on cell being hovered over
-//  public void onMouseExited(Posn p) {
-//    boolean found = false;
-//    Cell cell = null;
-//      
-//    for (int i = 0; i < this.board.size(); i = i + 1) {
-//        if ((this.board.get(i).x - (MinesweepWorld.CELL_SIZE / 2)) <= p.x 
-//            && (this.board.get(i).x + (MinesweepWorld.CELL_SIZE / 2)) >= p.x 
-//            && (this.board.get(i).y - (MinesweepWorld.CELL_SIZE / 2)) <= p.y 
-//            && (this.board.get(i).y + (MinesweepWorld.CELL_SIZE / 2)) >= p.y) {
-//          cell = this.board.get(i);
-//          found = true;
-//        }
-//      }
-//      if (!(found) || cell.clicked) {
-//        // do nothing
-//      }
-//      else {
-//        cell.color = cell.initColor();
-//      }
-//    }
   
-  public void onTick() {
-    //this.onMouseEntered(new Utils().pointToPosn(MouseInfo.getPointerInfo().getLocation()));
-    //this.onMouseExited(new Utils().pointToPosn(MouseInfo.getPointerInfo().getLocation()));
-    if (this.gameStarted && !(this.gameFinished)) {
-      this.ticks = ticks + 1;
-    }
-    this.convertToSecs();
-    this.checkIfDone();
+  void testBoardPool(Tester t) {
+    BoardPool pool = new BoardPool(2, 7);
+    t.checkExpect(pool.take(9, 9, 10, false), null);
+    pool.prepare(9, 9, 10, false);
+    pool.settle();
+    t.checkExpect(pool.boards(9, 9, 10, false).size(), 2);
+    ReadyBoard ready = pool.swap(new Board(9, 9), 10, false);
+    t.checkExpect(ready.board.numMines, 10);
+    t.checkExpect(ready.start, -1);
+    t.checkExpect(pool.hits.sum(), 1L);
+    t.checkExpect(pool.misses.sum(), 1L);
+    // a ready board is the one a game would make from its seed
+    Game made = new Game(9, 9, 10, 0);
+    made.restart(ready.seed);
+    t.checkExpect(ready.board.mines, made.board.mines);
+    t.checkExpect(ready.board.contacts, made.board.contacts);
+    t.checkExpect(ready.rand.nextLong(), made.rand.nextLong());
+    
+    // a game swaps a ready board in, and its old board is cleared and made into another
+    pool.settle();
+    Game game = new Game(9, 9, 10, 1);
+    game.usePool(pool);
+    Board old = game.board;
+    game.reveal(4, 4);
+    game.newGame();
+    t.checkExpect(game.board == old, false);
+    t.checkExpect(game.status(), GameStatus.READY);
+    t.checkExpect(game.board.numRevealed, 0);
+    t.checkExpect(game.board.numMines, 10);
+    pool.settle();
+    t.checkExpect(old.numRevealed, 0);
+    t.checkExpect(old.numMines, 10);
+    t.checkExpect(pool.hitRate() > 0.5, true);
+    t.checkExpect(pool.meanLagMillis() > 0, true);
+    
+    // boards that need no guessing are made for a first click in the middle
+    pool.prepare(9, 9, 10, true);
+    pool.settle();
+    ReadyBoard noGuess = pool.take(9, 9, 10, true);
+    t.checkExpect(noGuess.start, 40);
+    t.checkExpect(new NoGuessGenerator(9, 9, 10, 1).solvable(noGuess.board, 
+        new Solver(noGuess.board), 40), true);
+    pool.shutdown();
   }
   
-  // EFFECT: changes the secs field based on the ticks
-  void convertToSecs() {
-    if (!this.gameFinished && ((this.ticks != 0) && (this.ticks % 17 == 0))) {
-      this.secs = secs + 1;
+  void testHistogram(Tester t) {
+    Histogram histogram = new Histogram("test");
+    t.checkExpect(histogram.percentile(0.5), 0L);
+    for (long i = 1; i <= 100; i = i + 1) {
+      histogram.record(i);
     }
+    t.checkExpect(histogram.count.sum(), 100L);
+    t.checkExpect(histogram.total.sum(), 5050L);
+    // 50 is in the bucket from 48 to 51
+    t.checkExpect(histogram.bucket(48), histogram.bucket(51));
+    t.checkExpect(histogram.bucket(52) == histogram.bucket(51), false);
+    t.checkExpect(histogram.percentile(0.5), 51L);
+    // 99 shares a bucket with 100, and no percentile is above the max
+    t.checkExpect(histogram.percentile(0.99), 100L);
+    t.checkExpect(histogram.percentile(1.0), 100L);
+    t.checkExpect(histogram.highest(histogram.bucket(1000000)) >= 1000000, true);
+    t.checkExpect(histogram.highest(histogram.bucket(1000000)) < 1125000, true);
+    histogram.reset();
+    t.checkExpect(histogram.count.sum(), 0L);
+    t.checkExpect(histogram.max.get(), 0L);
   }
   
-  void checkIfDone() {
-    if (this.mineHit) {
-      this.gameFinished = true;
-    }
-    else {
-      boolean gameDone = true;
-      for (Cell c : this.board) {
-        gameDone = gameDone && (c.clicked || c.mine);
-      }
-      this.gameFinished = gameDone;
-      if (gameDone) {
-        this.times.add(this.secs);
-      }
-    }
+  void testMetrics(Tester t) throws JMException {
+    boolean wasEnabled = Metrics.ENABLED;
+    Metrics.ENABLED = false;
+    Metrics.reset();
+    MinesweepWorld world = new MinesweepWorld(3);
+    world.onMousePressed(new Posn(9 * BoardConfig.STANDARD.cellSize, 9 * BoardConfig.STANDARD.cellSize), 
+        "LeftButton");
+    world.onTick();
+    t.checkExpect(Metrics.start(), 0L);
+    t.checkExpect(Metrics.MOUSE_PRESSED.count.sum(), 0L);
+    
+    Metrics.ENABLED = true;
+    world.makeScene();
+    world.onMousePressed(new Posn(2 * BoardConfig.STANDARD.cellSize, 4 * BoardConfig.STANDARD.cellSize), 
+        "LeftButton");
+    world.onTick();
+    world.makeScene();
+    world.newGame();
+    t.checkExpect(Metrics.MOUSE_PRESSED.count.sum(), 1L);
+    t.checkExpect(Metrics.CELLS_PER_CLICK.count.sum(), 1L);
+    t.checkExpect(Metrics.ON_TICK.count.sum(), 1L);
+    t.checkExpect(Metrics.MAKE_SCENE.count.sum(), 2L);
+    t.checkExpect(Metrics.SCENE_ELEMENTS.percentile(1.0), 
+        (long) ((BoardConfig.STANDARD.width * BoardConfig.STANDARD.height) + 1));
+    t.checkExpect(Metrics.GENERATE.count.sum(), 1L);
+    t.checkExpect(Metrics.snapshot().get("onMousePressed.count"), 1L);
+    
+    t.checkExpect(ManagementFactory.getPlatformMBeanServer()
+        .isRegistered(new ObjectName(Metrics.MBEAN_NAME)), true);
+    MinesweepMetricsMXBean bean = new MinesweepMetrics();
+    t.checkExpect(bean.getSnapshot(), Metrics.snapshot());
+    bean.setEnabled(false);
+    t.checkExpect(Metrics.ENABLED, false);
+    bean.reset();
+    t.checkExpect(Metrics.MAKE_SCENE.count.sum(), 0L);
+    Metrics.ENABLED = wasEnabled;
   }
   
-  // EFFECT: Connects the appropriate cells to their top
-  void makeTopConnections() {
-    for (Cell c : this.board) {
-      if ((this.board.indexOf(c) >= 0) && (this.board.indexOf(c) < MinesweepWorld.BOARD_SIZE)) {
-        c.makeTop(new NoCell(new NoCell()));
-      }
-      else {
-        c.makeTop(this.board.get(this.board.indexOf(c) - MinesweepWorld.BOARD_SIZE));
+  void testRecording(Tester t) throws IOException {
+    // a session of clicks, flags, ticks and a new game plays back to the same state
+    MinesweepWorld world = new MinesweepWorld(5);
+    BoardView view = new BoardView();
+    Recorder recorder = new Recorder();
+    world.game.record(recorder);
+    world.onTick();
+    int[] clicks = {100, 101, 37, 250, 3};
+    for (int i = 0; i < clicks.length; i = i + 1) {
+      Posn cell = new Posn(view.cellX(world.game.board, clicks[i]), 
+          view.cellY(world.game.board, clicks[i]));
+      world.onMousePressed(cell, "RightButton");
+      world.onMousePressed(cell, "RightButton");
+      world.onMousePressed(cell, "LeftButton");
+      for (int j = 0; j < 20; j = j + 1) {
+        world.onTick();
       }
     }
-  }
-  
-  // EFFECT: Connects the appropriate cells to their right
-  void makeRightConnections() {
-    for (Cell c : this.board) {
-      if (this.board.indexOf(c) % MinesweepWorld.BOARD_SIZE == MinesweepWorld.BOARD_SIZE - 1) {
-        c.makeRight(new NoCell(new NoCell()));
-      }
-      else {
-        c.makeRight(this.board.get(this.board.indexOf(c) + 1));
-      }
+    world.onKeyEvent("r");
+    world.onMousePressed(new Posn(view.cellX(world.game.board, 200), 
+        view.cellY(world.game.board, 200)), "LeftButton");
+    world.onTick();
+    recorder.check(world.game);
+    byte[] log = recorder.toBytes();
+    Replayer replayer = new Replayer();
+    t.checkExpect(replayer.replay(log), true);
+    t.checkExpect(replayer.checks, 2);
+    t.checkExpect(replayer.failed, 0);
+    t.checkExpect(replayer.game.summary(), world.game.summary());
+    t.checkExpect(replayer.game.board.revealed, world.game.board.revealed);
+    t.checkExpect(log.length < 150, true);
+    
+    // a log with a different seed no longer matches what was recorded
+    log[10] = (byte) (log[10] + 1);
+    t.checkExpect(replayer.replay(log), false);
+    t.checkException(new IllegalArgumentException("not a recorded game"), 
+        replayer, "replay", new byte[] {1, 2, 3, 4, 5});
+    t.checkException(new IllegalArgumentException("log ends part way through an event"), 
+        replayer, "replay", Arrays.copyOf(recorder.toBytes(), 12));
+    
+    // two sessions appended one after the other play back as one
+    byte[] twice = Arrays.copyOf(recorder.toBytes(), 2 * recorder.length);
+    System.arraycopy(recorder.toBytes(), 0, twice, recorder.length, recorder.length);
+    t.checkExpect(replayer.replay(twice), true);
+    t.checkExpect(replayer.checks, 4);
+    
+    // games that need no guessing play back from the candidates that were chosen, whether
+    // placed on the first click or taken ready made from the pool
+    Game game = new Game(9, 9, 10, 7);
+    game.useNoGuess(1);
+    BoardPool pool = new BoardPool(1, 11);
+    Recorder noGuess = new Recorder();
+    game.record(noGuess);
+    game.newGame();
+    game.useSolver();
+    game.reveal(1, 2);
+    int safe = game.solver.nextSafe();
+    while (safe >= 0) {
+      game.revealAt(safe, false);
+      safe = game.solver.nextSafe();
     }
+    t.checkExpect(game.status(), GameStatus.WON);
+    game.usePool(pool);
+    pool.prepare(9, 9, 10, true);
+    pool.settle();
+    game.newGame();
+    t.checkExpect(game.readyStart, game.board.index(4, 4));
+    game.toggleFlag(0, 0);
+    game.reveal(4, 4);
+    game.tick();
+    game.newGame();
+    game.reveal(8, 8);
+    noGuess.check(game);
+    t.checkExpect(replayer.replay(noGuess.toBytes()), true);
+    t.checkExpect(replayer.checks, 4);
+    t.checkExpect(replayer.game.board.mines, game.board.mines);
+    game.generator.shutdown();
+    pool.shutdown();
+    
+    // a recording to a file has every move in the file as soon as it is made, before the
+    // game is over, and keeps none of it in memory once it is written
+    Path file = Files.createTempFile("minesweeper", ".log");
+    Files.delete(file);
+    Game onFile = new Game(9, 9, 10, 8);
+    Recorder toFile = new Recorder(file);
+    onFile.record(toFile);
+    Game inMemory = new Game(9, 9, 10, 8);
+    Recorder toMemory = new Recorder();
+    inMemory.record(toMemory);
+    onFile.reveal(4, 4);
+    inMemory.reveal(4, 4);
+    t.checkExpect(Files.readAllBytes(file), toMemory.toBytes());
+    t.checkExpect(toFile.length, 0);
+    onFile.toggleFlag(0, 0);
+    inMemory.toggleFlag(0, 0);
+    t.checkExpect(Files.readAllBytes(file), toMemory.toBytes());
+    t.checkExpect(toFile.length, 0);
+    Files.delete(file);
   }
   
-  // EFFECT: Connects the appropriate cells to their bottom
-  void makeBottomConnections() {
-    for (Cell c : this.board) {
-      if ((this.board.indexOf(c) 
-          >= ((MinesweepWorld.BOARD_SIZE * MinesweepWorld.BOARD_SIZE) - MinesweepWorld.BOARD_SIZE))
-          && (this.board.indexOf(c) < (MinesweepWorld.BOARD_SIZE * MinesweepWorld.BOARD_SIZE))) {
-        c.makeBottom(new NoCell(new NoCell()));
-      }
-      else {
-        c.makeBottom(this.board.get(this.board.indexOf(c) + MinesweepWorld.BOARD_SIZE));
-      }
+  void testSaveFile(Tester t) throws IOException {
+    // a game part way through comes back exactly as it was, on a board of its own or on
+    // the board of a game of the same size
+    Game game = new Game(30, 16, 99, 4);
+    game.useSolver();
+    game.reveal(8, 15);
+    game.toggleFlag(0, 0);
+    game.toggleFlag(15, 29);
+    for (int i = 0; i < 34; i = i + 1) {
+      game.tick();
     }
+    Path file = Files.createTempFile("minesweeper", ".sav");
+    SaveFile saves = new SaveFile();
+    saves.save(game, file);
+    t.checkExpect(Files.size(file), 64L + 240 + (3 * 64));
+    Game loaded = saves.read(file);
+    t.checkExpect(loaded.summary(), game.summary());
+    t.checkExpect(loaded.board.contacts, game.board.contacts);
+    t.checkExpect(loaded.board.mines, game.board.mines);
+    t.checkExpect(loaded.board.revealed, game.board.revealed);
+    t.checkExpect(loaded.board.flagged, game.board.flagged);
+    t.checkExpect(loaded.board.numFlagged, 2);
+    t.checkExpect(loaded.seed, 4L);
+    t.checkExpect(loaded.secs, 2);
+    t.checkExpect(loaded.gameStarted, true);
+    Game other = new Game(30, 16, 99, 5);
+    other.useSolver();
+    Board board = other.board;
+    saves.load(other, file);
+    t.checkExpect(other.board == board, true);
+    t.checkExpect(other.board.mines, game.board.mines);
+    t.checkExpect(other.solver.nextSafe(), game.solver.nextSafe());
+    
+    // a lost game on a board with an odd number of cells keeps its revealed mines
+    Game lost = new Game(7, 3, 5, 2);
+    lost.reveal(1, 3);
+    lost.revealAt(lost.board.mines.nextSetBit(0), true);
+    saves.save(lost, file);
+    Game back = saves.read(file);
+    t.checkExpect(back.status(), GameStatus.LOST);
+    t.checkExpect(back.board.contacts, lost.board.contacts);
+    t.checkExpect(back.board.revealed, lost.board.revealed);
+    t.checkExpect(back.board.width, 7);
+    
+    // the window saves and loads with s and l
+    MinesweepWorld world = new MinesweepWorld(6);
+    world.game.reveal(9, 9);
+    world.save(file);
+    world.onKeyEvent("r");
+    world.load(file);
+    t.checkExpect(world.game.numClicks, 1);
+    
+    // a game that needs no guessing keeps its number of mines from before its first click
+    Game noGuess = new Game(9, 9, 10, 3);
+    noGuess.useNoGuess(1);
+    noGuess.newGame();
+    saves.save(noGuess, file);
+    Game notPlaced = saves.read(file);
+    t.checkExpect(notPlaced.board.numMines, 0);
+    t.checkExpect(notPlaced.numMines, 10);
+    t.checkExpect(notPlaced.flags, 10);
+    noGuess.generator.shutdown();
+    
+    // anything else is not a saved game, and a file cut short leaves the game alone
+    saves.save(lost, file);
+    byte[] whole = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(whole, whole.length - 8));
+    t.checkException(new IllegalArgumentException("save file is cut short"), 
+        saves, "load", world.game, file);
+    t.checkExpect(world.game.numClicks, 1);
+    t.checkExpect(world.game.board.width, 18);
+    Files.write(file, new byte[100]);
+    t.checkException(new IllegalArgumentException("not a saved game"), 
+        saves, "read", file);
+    world.load(file);
+    t.checkExpect(world.game.numClicks, 1);
+    
+    // a window only loads a game of its own size, but a game on its own loads any
+    saves.save(noGuess, file);
+    t.checkException(new IllegalArgumentException(
+        "the saved game is on a 9x9 square board, not a 18x18 square one"), 
+        saves, "load", world.game, file, false);
+    world.load(file);
+    t.checkExpect(world.game.board.width, 18);
+    t.checkExpect(world.game.numClicks, 1);
+    Game resized = new Game(5, 5, 3, 1);
+    resized.useNoGuess(1);
+    saves.load(resized, file);
+    t.checkExpect(resized.board.width, 9);
+    t.checkExpect(resized.generator.width, 9);
+    t.checkExpect(resized.generator.mines, 10);
+    resized.reveal(4, 4);
+    t.checkExpect(resized.board.numMines, 10);
+    resized.generator.shutdown();
+    Files.delete(file);
   }
   
-  // EFFECT: Connects the appropriate cells to their left
-  void makeLeftConnections() {
-    for (Cell c : this.board) {
-      if (this.board.indexOf(c) % MinesweepWorld.BOARD_SIZE == 0) {
-        c.makeLeft(new NoCell(new NoCell()));
-      }
-      else {
-        c.makeLeft(this.board.get(this.board.indexOf(c) - 1));
-      }
+  void testLeaderboard(Tester t) throws IOException {
+    // the best time, mean and percentiles of each kind of game are kept apart
+    Leaderboard board = new Leaderboard();
+    t.checkExpect(board.hasBest("9x9/10/random"), false);
+    int[] secs = {40, 12, 25, 12, 90, 33};
+    for (int s : secs) {
+      board.record("9x9/10/random", s);
     }
-  }
-  
-  // EFFECT: Resets the current game and creates a new board
-  public void onKeyEvent(String key) {
-    if (key.equals("r")) {
-      this.newGame();
+    board.record("30x16/99/random", 300);
+    TimeStats stats = board.stats("9x9/10/random");
+    t.checkExpect(board.best("9x9/10/random"), 12);
+    t.checkExpect(board.best("30x16/99/random"), 300);
+    t.checkExpect(stats.count(), 6L);
+    t.checkInexact(stats.mean(), 212 / 6.0, 0.0001);
+    // 25 shares its bucket only with 24, so the median comes out exact
+    t.checkExpect(stats.percentile(0.5), 25L);
+    t.checkExpect(stats.percentile(1.0), 90L);
+    
+    // a leaderboard kept in a file comes back the same, whether from wins or from the
+    // stats the file is compacted to
+    Path file = Files.createTempFile("minesweeper", ".scores");
+    Files.delete(file);
+    Leaderboard kept = new Leaderboard(file);
+    kept.compactEvery = 4;
+    for (int s : secs) {
+      kept.record("9x9/10/random", s);
     }
+    t.checkExpect(kept.appended, 2);
+    t.checkExpect(Files.readAllLines(file).size(), 3);
+    Leaderboard again = new Leaderboard(file);
+    t.checkExpect(again.best("9x9/10/random"), 12);
+    t.checkExpect(again.stats("9x9/10/random").count(), 6L);
+    t.checkExpect(again.stats("9x9/10/random").toLine(), stats.toLine());
+    again.compact();
+    t.checkExpect(Files.readAllLines(file).size(), 1);
+    t.checkExpect(new Leaderboard(file).stats("9x9/10/random").toLine(), stats.toLine());
+    
+    // lines it did not write are skipped, and windows on the same file share one
+    // leaderboard, so no window compacts away the others' wins
+    Files.write(file, Arrays.asList("win\t9x9/10/random\t7", "win\t9x9/10/random\tx",
+        "stats\t9x9/10/random\t1\t2\t3\t4\t5", "stats\t9x9/10/random\t1\t2\t3\t4\t5:",
+        "win\t9x9/10/ran"));
+    Leaderboard skipped = new Leaderboard(file);
+    t.checkExpect(skipped.stats("9x9/10/random").count(), 1L);
+    t.checkExpect(skipped.best("9x9/10/random"), 7);
+    Leaderboard shared = Leaderboard.of(file);
+    t.checkExpect(Leaderboard.of(file) == shared, true);
+    t.checkExpect(Leaderboard.of(file.getParent().resolve(".").resolve(file.getFileName()))
+        == shared, true);
+    Leaderboard.SHARED.remove(file.toAbsolutePath().normalize());
+    Files.delete(file);
+    
+    // a game ranks its wins by its kind
+    Game game = new Game(3, 1, 1, 0);
+    game.board.clear();
+    game.board.placeMine(2);
+    game.setContacts();
+    game.revealAt(0, true);
+    game.revealAt(1, true);
+    t.checkExpect(game.status(), GameStatus.WON);
+    t.checkExpect(game.kind(), "3x1/1/random");
+    t.checkExpect(game.leaderboard.best("3x1/1/random"), 0);
   }
   
-  // EFFECT: Makes a new game
-  void newGame() {
-    MinesweepWorld temp = new MinesweepWorld();
-    this.board = temp.board;
-    this.flags = temp.flags;
-    this.mines = temp.mines;
-    this.mineHit = false;
-    this.numClicks = 0;
-    this.ticks = 0;
-    this.secs = 0;
-    this.gameStarted = false;
-    this.gameFinished = false;
-    this.version = 0;
-    this.verAndFlagList = temp.verAndFlagList;
+  // Returns the chance of a mine in each cell of the given board, found by trying every
+  // way to place its mines that fits the revealed numbers
+  double[] bruteOdds(Board board) {
+    double[] count = new double[board.size + 1];
+    this.tryMines(board, new BitSet(board.size), 0, board.numMines, count);
+    double[] odds = new double[board.size];
+    for (int i = 0; i < board.size; i = i + 1) {
+      odds[i] = count[i] / count[board.size];
+    }
+    return odds;
   }
   
-  // Gets the message for a win or loss depending on the game state
-  String endMessage() {
-    if (this.mineHit) {
-      return "Sorry, YOU LOST!";
+  // EFFECT: tries every way to put left more mines on hidden cells from the cell at from
+  // onwards, counting in count how often each cell is a mine in the placements that fit,
+  // and in its last entry how many placements fit
+  void tryMines(Board board, BitSet placed, int from, int left, double[] count) {
+    if (left == 0) {
+      boolean fits = true;
+      int[] touching = new int[8];
+      for (int i = board.revealed.nextSetBit(0); i >= 0; i = board.revealed.nextSetBit(i + 1)) {
+        int total = 0;
+        int found = board.neighbours(i, touching);
+        for (int j = 0; j < found; j = j + 1) {
+          if (placed.get(touching[j])) {
+            total = total + 1;
+          }
+        }
+        fits = fits && (total == board.getContacts(i));
+      }
+      if (fits) {
+        for (int i = placed.nextSetBit(0); i >= 0; i = placed.nextSetBit(i + 1)) {
+          count[i] = count[i] + 1;
+        }
+        count[board.size] = count[board.size] + 1;
+      }
     }
     else {
-      return "You won in " + Integer.toString(this.secs) + " seconds!";
+      for (int i = from; i < board.size; i = i + 1) {
+        if (!board.isRevealed(i)) {
+          placed.set(i);
+          this.tryMines(board, placed, i + 1, left - 1, count);
+          placed.clear(i);
+        }
+      }
     }
   }
   
-  // Gets the message to say the best time so far
-  String bestTime() {
-    this.times.sort(new IntegerComparator());
-    return "Your current record is " + Integer.toString(this.times.get(0)) + " seconds";
-  }
-  
-//  // Determines when to end the game
-//  public WorldEnd worldEnds() {
-//    if (this.mineHit) {
-//      return new WorldEnd(true, this.makeAFinalScene());
-//    }
-//    else {
-//      return new WorldEnd(false, this.makeScene());
-//    }
-//  }
-//  
-//  // Makes the final scene of a game, representing either a win or a loss
-//  public WorldScene makeAFinalScene() {
-//    for (Cell c : this.mines) {
-//      c.clicked = true;
-//      c.color = c.revealColor();
-//    }
-//    return this.makeScene();
-//  }
-  }
-
-class IntegerComparator implements Comparator<Integer> {
-
-  // Compares two integers
-  public int compare(Integer i1, Integer i2) {
-    return i1.compareTo(i2);
-  }  
-}
-
-class ExamplesMinesweep {
-  ExamplesMinesweep() {}
- 
-  Cell c1;
-  Cell c2;
-  Cell c3;
-  Cell c4;
-  Cell c5;
-  Cell c6;
-  Cell c7;
-  Cell c8;
-  Cell c9;
-  Cell c10;
-  Cell c11;
-  Cell c12;
-  Cell c13;
-  Cell c1c;
-  Cell c2c;
-  Cell c3c;
-  Cell c4c;
-  ACell noCell;
-  WorldScene world1;
-  WorldScene world2;
-  WorldScene world3;
-  
-  ArrayList<Cell> cellList2x2;
-  ArrayList<Cell> cellList3x3;
-  ArrayList<Cell> cellListCopy;
-  
-  MinesweepWorld world2x2;
-  MinesweepWorld world3x3;
-  MinesweepWorld worldCopy;
- 
-  void initCond() {
-    this.noCell = new NoCell(new NoCell());
-    this.c1 = new Cell(0, 0, 1, 1);
-    this.c2 = new Cell(MinesweepWorld.CELL_SIZE, 0, 2, 1);
-    this.c3 = new Cell(0, MinesweepWorld.CELL_SIZE, 1, 2);
-    this.c4 = new Cell(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE, 2, 2);
-    this.c1c = new Cell(0, 0, 1, 1);
-    this.c2c = new Cell(MinesweepWorld.CELL_SIZE, 0, 2, 1);
-    this.c3c = new Cell(0, MinesweepWorld.CELL_SIZE, 1, 2);
-    this.c4c = new Cell(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE, 2, 2);
-    
-    this.cellListCopy = new ArrayList<Cell>(Arrays.asList(c1c, c2c, c3c, c4c));
-    
-    this.worldCopy = new MinesweepWorld(cellListCopy, 3, new ArrayList<Cell>(Arrays.asList(c1c)));
-   
-    c1.makeLeft(noCell);
-    c1.makeTop(noCell);
-    c1.makeRight(c2);
-    c1.makeBottom(c3);
-   
-    c2.makeLeft(c1);
-    c2.makeTop(noCell);
-    c2.makeRight(noCell);
-    c2.makeBottom(c4);
-   
-    c3.makeLeft(noCell);
-    c3.makeTop(c1);
-    c3.makeRight(c4);
-    c3.makeBottom(noCell);
-   
-    c4.makeLeft(c3);
-    c4.makeTop(c2);
-    c4.makeRight(noCell);
-    c4.makeBottom(noCell);
-    
-    this.world1 = new WorldScene(0, 0);
-    this.world2 = new WorldScene(0, 0);
-    this.world3 = new WorldScene(0, 0);
-    
-    this.cellList2x2 = new ArrayList<Cell>(Arrays.asList(c1, c2, c3, c4));
-    
-    this.world2x2 = new MinesweepWorld(cellList2x2, 1, new ArrayList<Cell>(Arrays.asList(c3)));
-    
-    this.c5 = new Cell(0, 0, 1, 1);
-    this.c6 = new Cell(MinesweepWorld.CELL_SIZE, 0, 2, 1);
-    this.c7 = new Cell(2 * MinesweepWorld.CELL_SIZE, 0, 3, 1);
-    this.c8 = new Cell(0, MinesweepWorld.CELL_SIZE, 2, 1);
-    this.c9 = new Cell(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE, 2, 2);
-    this.c10 = new Cell(2 * MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE, 2, 3);
-    this.c11 = new Cell(0, 2 * MinesweepWorld.CELL_SIZE, 3, 1);
-    this.c12 = new Cell(MinesweepWorld.CELL_SIZE, 2 * MinesweepWorld.CELL_SIZE, 3, 2);
-    this.c13 = new Cell(2 * MinesweepWorld.CELL_SIZE, 2 * MinesweepWorld.CELL_SIZE, 3, 3);
-   
-    c5.makeLeft(noCell);
-    c5.makeTop(noCell);
-    c5.makeRight(c6);
-    c5.makeBottom(c8);
-   
-    c6.makeLeft(c5);
-    c6.makeTop(noCell);
-    c6.makeRight(c7);
-    c6.makeBottom(c9);
-   
-    c7.makeLeft(c6);
-    c7.makeTop(noCell);
-    c7.makeRight(noCell);
-    c7.makeBottom(c10);
-   
-    c8.makeLeft(noCell);
-    c8.makeTop(c5);
-    c8.makeRight(c9);
-    c8.makeBottom(c11);
-    
-    c9.makeLeft(c8);
-    c9.makeTop(c6);
-    c9.makeRight(c10);
-    c9.makeBottom(c12);
-   
-    c10.makeLeft(c9);
-    c10.makeTop(c7);
-    c10.makeRight(noCell);
-    c10.makeBottom(c13);
-    
-    c11.makeLeft(noCell);
-    c11.makeTop(c8);
-    c11.makeRight(c12);
-    c11.makeBottom(noCell);
-    
-    c12.makeLeft(c11);
-    c12.makeTop(c9);
-    c12.makeRight(c13);
-    c12.makeBottom(noCell);
-    
-    c13.makeLeft(c12);
-    c13.makeTop(c10);
-    c13.makeRight(noCell);
-    c13.makeBottom(noCell);
-    
-    this.cellList3x3 = new ArrayList<Cell>(Arrays.asList(c5, c6, c7, c8, c9, c10, c11, c12, c13));
-    
-    this.world3x3 = new MinesweepWorld(cellList3x3, 4, new ArrayList<Cell>());
-  }
-  
-  void testMakeLeft(Tester t) {
+  void testCellAt(Tester t) {
     initCond();
     
-    t.checkExpect(c1.left, noCell);
-    c1.makeLeft(c2);
-    t.checkExpect(c1.left, c2);
-    c1.makeLeft(noCell);
-    t.checkExpect(c1.left, noCell);
+    BoardView view = new BoardView();
+    t.checkExpect(view.cellAt(board3x3, new Posn(view.cellX(board3x3, 5), 
+        view.cellY(board3x3, 5))), 5);
+    t.checkExpect(view.cellAt(board3x3, new Posn(0, 0)), -1);
+    t.checkExpect(view.cellAt(board3x3, new Posn(view.cellX(board3x3, 8) + BoardConfig.STANDARD.cellSize,
+        view.cellY(board3x3, 8))), -1);
     
-    t.checkExpect(noCell.left, new NoCell());
-    noCell.makeLeft(c4);
-    t.checkExpect(noCell.left, c4);
-    
-    initCond();
+    // every pixel must land on the same cell a scan from the top left would find
+    boolean sameAsScan = true;
+    for (BoardView v : new BoardView[] {view, new BoardView(20, 50, 11)}) {
+      for (int x = 0; x < (6 * v.cellSize) + v.originX; x = x + 1) {
+        for (int y = 0; y < (6 * v.cellSize) + v.originY; y = y + 1) {
+          int found = -1;
+          for (int i = 8; i >= 0; i = i - 1) {
+            if (Math.abs(v.cellX(board3x3, i) - x) <= (v.cellSize / 2)
+                && Math.abs(v.cellY(board3x3, i) - y) <= (v.cellSize / 2)) {
+              found = i;
+            }
+          }
+          sameAsScan = sameAsScan && (v.cellAt(board3x3, new Posn(x, y)) == found);
+        }
+      }
+    }
+    t.checkExpect(sameAsScan, true);
   }
   
-  void testMakeRight(Tester t) {
+  void testOnMousePressed(Tester t) {
     initCond();
     
-    t.checkExpect(c1.right, c2);
-    c1.makeRight(c3);
-    t.checkExpect(c1.right, c3);
-    c1.makeRight(noCell);
-    t.checkExpect(c1.right, noCell);
-    
-    t.checkExpect(noCell.right, new NoCell());
-    noCell.makeRight(c4);
-    t.checkExpect(noCell.right, c4);
-    
-    initCond();
+    BoardView view = new BoardView();
+    Posn corner = new Posn(view.cellX(board3x3, 8), view.cellY(board3x3, 8));
+    board3x3.placeMine(2);
+    board3x3.setContacts();
+    world3x3.game.numClicks = 1;
+    world3x3.onMousePressed(corner, "RightButton");
+    t.checkExpect(board3x3.isFlagged(8), true);
+    t.checkExpect(world3x3.game.flags, 3);
+    world3x3.onMousePressed(corner, "LeftButton");
+    t.checkExpect(board3x3.revealed.cardinality(), 0);
+    world3x3.onMousePressed(corner, "RightButton");
+    world3x3.onMousePressed(corner, "LeftButton");
+    t.checkExpect(board3x3.revealed.cardinality(), 8);
+    t.checkExpect(world3x3.game.flags, 4);
+    world3x3.onMousePressed(new Posn(0, 0), "LeftButton");
+    t.checkExpect(world3x3.game.numClicks, 2);
   }
   
-  void testMakeTop(Tester t) {
+  void testMakeScene(Tester t) {
     initCond();
     
-    t.checkExpect(c1.top, noCell);
-    c1.makeTop(c3);
-    t.checkExpect(c1.top, c3);
-    c1.makeTop(noCell);
-    t.checkExpect(c1.top, noCell);
-    
-    t.checkExpect(noCell.top, null);
-    noCell.makeTop(c4);
-    t.checkExpect(noCell.top, c4);
+    WorldScene world = new WorldScene(0, 0);
+    BoardView view = world2x2.view;
+    for (int i = 0; i < 4; i = i + 1) {
+      world.placeImageXY(view.drawCell(board2x2, i), view.cellX(board2x2, i), 
+          view.cellY(board2x2, i));
+    }
+    world.placeImageXY(world2x2.infoBar(), 
+        (world2x2.config.boardWidth() / 2) + (BoardConfig.STANDARD.cellSize / 2), 
+        (3 * BoardConfig.STANDARD.cellSize / 2));
     
-    initCond();
+    t.checkExpect(world2x2.makeScene(), world);
+    t.checkExpect(view.cellX(board2x2, 3), 2 * BoardConfig.STANDARD.cellSize);
+    t.checkExpect(view.cellY(board2x2, 3), 4 * BoardConfig.STANDARD.cellSize);
+    t.checkExpect(new BoardView().drawCell(board2x2, 1), 
+        new RectangleImage(BoardConfig.STANDARD.cellSize, BoardConfig.STANDARD.cellSize,
+        OutlineMode.SOLID, Utils.HIDDEN_COLORS[1]));
   }
   
-  void testMakeBottom(Tester t) {
-    initCond();
+  void testBoardConfig(Tester t) {
+    // boards need not be square, and their cells shrink to fit the longer side
+    BoardConfig expert = new BoardConfig(30, 16, 99);
+    t.checkExpect(expert.cellSize, 21);
+    t.checkExpect(expert.fontSize(), 15);
+    t.checkExpect(expert.boardWidth(), 630);
+    t.checkExpect(expert.boardHeight(), 336);
+    t.checkExpect(expert.windowWidth(), 651);
+    t.checkExpect(expert.windowHeight(), 483);
+    t.checkExpect(BoardConfig.STANDARD.cellSize, 36);
+    t.checkExpect(new BoardConfig(2000, 10, 1).cellSize, 1);
     
-    t.checkExpect(c1.bottom, c3);
-    c1.makeBottom(c4);
-    t.checkExpect(c1.bottom, c4);
-    c1.makeBottom(noCell);
-    t.checkExpect(c1.bottom, noCell);
+    // games drawn at the same size share their images, of which the info bar's are only
+    // built when first asked for
+    BoardAssets assets = new BoardConfig(30, 16, 10).assets();
+    t.checkExpect(assets == expert.assets(), true);
+    t.checkExpect(assets == BoardConfig.STANDARD.assets(), false);
+    BoardAssets unused = BoardAssets.of(7, 9);
+    t.checkExpect(unused.clock, null);
+    t.checkExpect(unused.clock() == unused.clock(), true);
+    t.checkExpect(unused.cells.cells[unused.cells.cellKey(true, false, false, 8, 1)] 
+        != null, true);
     
-    t.checkExpect(noCell.bottom, null);
-    noCell.makeBottom(c4);
-    t.checkExpect(noCell.bottom, c4);
+    // windows of different sizes run side by side, each placing and drawing its own cells
+    MinesweepWorld wide = new MinesweepWorld(expert, 3);
+    MinesweepWorld standard = new MinesweepWorld(3);
+    t.checkExpect(wide.game.board.width, 30);
+    t.checkExpect(wide.game.board.height, 16);
+    t.checkExpect(wide.game.board.numMines, 99);
+    int corner = wide.game.board.index(15, 29);
+    Posn last = new Posn(wide.view.cellX(wide.game.board, corner), 
+        wide.view.cellY(wide.game.board, corner));
+    t.checkExpect(last, new Posn(30 * 21, 18 * 21));
+    t.checkExpect(wide.view.cellAt(wide.game.board, last), corner);
+    wide.onMousePressed(last, "LeftButton");
+    t.checkExpect(wide.game.numClicks, 1);
+    t.checkExpect(standard.game.numClicks, 0);
+    t.checkExpect(wide.makeScene() == wide.makeScene(), true);
+    t.checkExpect(wide.view.onRestart(wide.game.board, new Posn(170, 30)), true);
+    t.checkExpect(standard.view.onRestart(standard.game.board, new Posn(170, 30)), false);
+    t.checkExpect(standard.view.onRestart(standard.game.board, new Posn(170, 50)), true);
+    t.checkExpect(wide.view.onRestart(wide.game.board, new Posn(170, 50)), false);
     
-    initCond();
+    // the restart button moves with the board when the view is drawn somewhere else
+    BoardView moved = new BoardView(20, 50, 11);
+    Board small = new Board(4, 4);
+    t.checkExpect(moved.onRestart(small, new Posn(15, 28)), true);
+    t.checkExpect(moved.onRestart(small, new Posn(36, 39)), true);
+    t.checkExpect(moved.onRestart(small, new Posn(14, 30)), false);
+    t.checkExpect(moved.onRestart(small, new Posn(20, 40)), false);
+    t.checkExpect(moved.onRestart(small, new Posn(10, 15)), false);
   }
   
-  void testDrawCell(Tester t) {
-    initCond();
+  void testDelta(Tester t) {
+    Game game = new Game(100, 100, 10, 7);
+    DeltaWriter deltas = new DeltaWriter();
+    BoardCopy copy = new BoardCopy();
+    game.watch(deltas);
+    copy.apply(deltas.take());
+    t.checkExpect(copy.matches(game.board), true);
+    t.checkExpect(copy.flags(), 10);
     
-    t.checkExpect(c1.drawCell(), new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-        OutlineMode.SOLID, new Color(165, 230, 80, 255)));
-    t.checkExpect(c2.drawCell(), new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-        OutlineMode.SOLID, new Color(150, 215, 75, 255)));
-    
-    c1.clicked = true;
-    c2.clicked = true;
-    c1.color = c1.revealColor();
-    c2.color = c2.revealColor();
-    
-    t.checkExpect(c1.drawCell(), new OverlayImage(new TextImage("0", 
-        MinesweepWorld.FONT_SIZE, FontStyle.BOLD, new Utils().getColor(c1.mineContacts)),
-        new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-        OutlineMode.SOLID, new Color(245, 235, 200, 255))));
-    t.checkExpect(c2.drawCell(), new OverlayImage(new TextImage("0",
-        MinesweepWorld.FONT_SIZE, FontStyle.BOLD, new Utils().getColor(c1.mineContacts)),
-        new RectangleImage(MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE,
-        OutlineMode.SOLID, new Color(235, 225, 185, 255))));
-  }
-  
-  void testMinesInContact(Tester t) {
-    initCond();
+    // a first click on a nearly empty board opens most of it, in a few bytes a row
+    int count = game.reveal(50, 50);
+    byte[] delta = deltas.take();
+    copy.apply(delta);
+    t.checkExpect(copy.matches(game.board), true);
+    t.checkExpect(copy.status, GameStatus.PLAYING);
+    t.checkExpect(count > 9000, true);
+    t.checkExpect(delta.length < ((count / 2) + 400), true);
     
-    t.checkExpect(c8.mineContacts, 0);
-    t.checkExpect(c9.mineContacts, 0);
-    c5.mine = true;
-    //c8.top.mine = true;
-    c8.minesInContact();
-    c9.minesInContact();
-    t.checkExpect(c8.mineContacts, 1);
-    t.checkExpect(c9.mineContacts, 1);
-    //t.checkExpect(c8.top, c5);
-    //t.checkExpect(c5.mine, true);
-    //t.checkExpect(c8.top.mine, true);
-    c6.mine = true;
-    c7.mine = true;
-    c8.minesInContact();
-    c9.minesInContact();
-    t.checkExpect(c8.mineContacts, 2);
-    t.checkExpect(c9.mineContacts, 3);
-    c8.mine = true;
-    c10.mine = true;
-    c11.mine = true;
-    c12.mine = true;
-    c13.mine = true;
-    c9.minesInContact();
-    t.checkExpect(c9.mineContacts, 8);
+    // flags go on and off one at a time
+    int hidden = game.board.revealed.nextClearBit(0);
+    game.toggleFlagAt(hidden);
+    t.checkExpect(deltas.take().length, 2);
+    game.toggleFlagAt(hidden);
+    game.toggleFlagAt(hidden);
+    copy.apply(deltas.take());
+    t.checkExpect(copy.matches(game.board), true);
+    t.checkExpect(copy.flags(), game.flags);
     
-    initCond();
+    // a single cell costs a few bytes, and a lost game shows every mine
+    int mine = game.board.mines.nextSetBit(0);
+    if (mine == hidden) {
+      mine = game.board.mines.nextSetBit(mine + 1);
+    }
+    game.revealAt(mine, true);
+    delta = deltas.take();
+    copy.apply(delta);
+    t.checkExpect(copy.matches(game.board), true);
+    t.checkExpect(copy.status, GameStatus.LOST);
+    t.checkExpect(copy.flags(), game.flags);
+    t.checkExpect(delta.length < 40, true);
+    
+    // a new game empties the copy, and a copy that starts late catches up from a snapshot
+    game.newGame();
+    game.reveal(0, 0);
+    copy.apply(deltas.take());
+    t.checkExpect(copy.matches(game.board), true);
+    BoardCopy late = new BoardCopy();
+    DeltaWriter lateDeltas = new DeltaWriter();
+    game.watch(lateDeltas);
+    late.apply(lateDeltas.take());
+    t.checkExpect(late.matches(game.board), true);
+    t.checkExpect(late.status, game.status());
+    
+    // a game that needs no guessing says how many mines it has before they are placed,
+    // and the flags put down before then stay
+    Game noGuess = new Game(9, 9, 10, 3);
+    noGuess.useNoGuess(1);
+    noGuess.newGame();
+    BoardCopy watching = new BoardCopy();
+    noGuess.watch(deltas);
+    noGuess.toggleFlagAt(0);
+    watching.apply(deltas.take());
+    t.checkExpect(watching.flags(), 9);
+    noGuess.reveal(4, 4);
+    delta = deltas.take();
+    t.checkExpect(delta[0], (byte) DeltaWriter.MINE_COUNT);
+    watching.apply(delta);
+    t.checkExpect(watching.matches(noGuess.board), true);
+    t.checkExpect(watching.numMines, 10);
+    t.checkExpect(watching.flags(), noGuess.flags);
+    noGuess.generator.shutdown();
+    
+    t.checkException(new IllegalArgumentException("unknown delta event 42"),
+        copy, "apply", new byte[] {42});
+    t.checkException(new IllegalArgumentException("delta ends part way through an event"),
+        copy, "apply", new byte[] {(byte) DeltaWriter.FLAG});
+    t.checkException(new IllegalArgumentException("cell 10000 is off the board"),
+        copy, "apply", new byte[] {(byte) DeltaWriter.FLAG, (byte) 0x90, (byte) 0x4E});
   }
   
-  void testSetBoard(Tester t) {
-    MinesweepWorld testSetWorld = new MinesweepWorld();
-    t.checkExpect(testSetWorld.board.size(), MinesweepWorld.BOARD_SIZE * MinesweepWorld.BOARD_SIZE);
-    t.checkExpect(testSetWorld.board.get(new Random().nextInt(testSetWorld.board.size())) 
-        instanceof Cell, true);
-  }
+  void testGameServer(Tester t) throws IOException {
+    GameServer server = new GameServer(0, new BoardConfig(9, 9, 10), 1);
+    server.start();
+    InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+        server.port());
+    SocketChannel player = SocketChannel.open(address);
 
-  void testMakeScene(Tester t) {
-    initCond();
-    
-    WorldScene world = new WorldScene(0, 0);
-    world.placeImageXY(c1.drawCell(), 0, 0);
-    world.placeImageXY(c2.drawCell(), MinesweepWorld.CELL_SIZE, 0);
-    world.placeImageXY(c3.drawCell(), 0, MinesweepWorld.CELL_SIZE);
-    world.placeImageXY(c4.drawCell(), MinesweepWorld.CELL_SIZE, MinesweepWorld.CELL_SIZE);
+    // a 3x3 game with no mines is won by its first reveal
+    ByteBuffer reply = this.command(player, ByteBuffer.allocate(17).put((byte) GameServer.NEW)
+        .putShort((short) 3).putShort((short) 3).putInt(0).putLong(5), 14);
+    t.checkExpect(reply.get(0), (byte) GameServer.NEW);
+    t.checkExpect(reply.get(1), (byte) GameStatus.READY.ordinal());
+    t.checkExpect(reply.getInt(10), 9);
+    reply = this.command(player, ByteBuffer.allocate(5).put((byte) GameServer.REVEAL)
+        .putInt(4), 14);
+    t.checkExpect(reply.get(1), (byte) GameStatus.WON.ordinal());
+    t.checkExpect(reply.getInt(2), 9);
+    t.checkExpect(reply.getInt(10), 0);
+
+    // a restart starts the same kind of game again, and flags count down from its mines
+    reply = this.command(player, ByteBuffer.allocate(1).put((byte) GameServer.RESTART), 14);
+    t.checkExpect(reply.get(1), (byte) GameStatus.READY.ordinal());
+    reply = this.command(player, ByteBuffer.allocate(5).put((byte) GameServer.FLAG)
+        .putInt(2), 14);
+    t.checkExpect(reply.getInt(2), 1);
+    t.checkExpect(reply.getInt(6), -1);
+
+    // the board comes two cells to a byte, hidden cells as 10 and flagged ones as 11
+    reply = this.command(player, ByteBuffer.allocate(1).put((byte) GameServer.STATE), 23);
+    t.checkExpect(reply.get(0), (byte) GameServer.STATE);
+    t.checkExpect(reply.getInt(14), 9);
+    t.checkExpect(reply.get(18), (byte) 0xAA);
+    t.checkExpect(reply.get(19), (byte) 0xAB);
+    t.checkExpect(reply.get(22), (byte) 0x0A);
+
+    // cells off the board and boards too big are refused, and the game goes on
+    reply = this.command(player, ByteBuffer.allocate(5).put((byte) GameServer.REVEAL)
+        .putInt(9), 14);
+    t.checkExpect(reply.get(1), (byte) GameServer.ERROR);
+    reply = this.command(player, ByteBuffer.allocate(17).put((byte) GameServer.NEW)
+        .putShort((short) 1000).putShort((short) 1000).putInt(1).putLong(5), 14);
+    t.checkExpect(reply.get(1), (byte) GameServer.ERROR);
+    t.checkExpect(reply.getInt(10), 9);
+
+    // several commands sent at once are answered in order
+    ByteBuffer both = ByteBuffer.allocate(10).put((byte) GameServer.FLAG).putInt(2)
+        .put((byte) GameServer.REVEAL).putInt(0);
+    reply = this.command(player, both, 28);
+    t.checkExpect(reply.get(0), (byte) GameServer.FLAG);
+    t.checkExpect(reply.getInt(6), 0);
+    t.checkExpect(reply.get(14), (byte) GameServer.REVEAL);
+    t.checkExpect(reply.get(15), (byte) GameStatus.WON.ordinal());
+
+    // an unknown command ends the session
+    player.write(ByteBuffer.wrap(new byte[] {42}));
+    t.checkExpect(player.read(ByteBuffer.allocate(1)), -1);
+    player.close();
+
+    // many players at once each get their own game
+    LoadClient client = new LoadClient(9, 9, 10, 2);
+    client.connect(address, 50);
+    client.run(300);
+    t.checkExpect(client.commands > 50, true);
+    t.checkExpect(client.latency.count.sum(), client.commands);
+    client.close();
+    server.close();
     
-    t.checkExpect(world2x2.makeScene(), world);
+    // a connection that cannot be accepted stops accepting for a while, and the server
+    // picks up the connections waiting once the pause is over
+    GameServer paused = new GameServer(0, new BoardConfig(9, 9, 10), 1);
+    t.checkExpect(paused.acceptWait(), 0L);
+    paused.pauseAccepting(new IOException("Too many open files"));
+    t.checkExpect(paused.accepting.interestOps(), 0);
+    t.checkExpect(paused.acceptWait() > 0, true);
+    t.checkExpect(paused.acceptFailures, 1L);
+    paused.acceptPausedUntil = System.nanoTime() - 1;
+    t.checkExpect(paused.acceptWait(), 0L);
+    t.checkExpect(paused.accepting.interestOps(), SelectionKey.OP_ACCEPT);
+    paused.start();
+    SocketChannel late = SocketChannel.open(new InetSocketAddress(
+        InetAddress.getLoopbackAddress(), paused.port()));
+    reply = this.command(late, ByteBuffer.allocate(1).put((byte) GameServer.STATE), 59);
+    t.checkExpect(reply.getInt(14), 81);
+    late.close();
+    paused.close();
   }
-  
+
+  // EFFECT: sends the given command to a GameServer over the given channel
+  // Returns the reply, which is the given number of bytes long
+  ByteBuffer command(SocketChannel channel, ByteBuffer command, int length)
+      throws IOException {
+    command.flip();
+    while (command.hasRemaining()) {
+      channel.write(command);
+    }
+    ByteBuffer reply = ByteBuffer.allocate(length);
+    while (reply.hasRemaining()) {
+      if (channel.read(reply) < 0) {
+        throw new IOException("server closed the session");
+      }
+    }
+    return reply;
+  }
+
   void testMinesweepWorld(Tester t) {
-    MinesweepWorld world = new MinesweepWorld();
-    world.bigBang((MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE) + MinesweepWorld.CELL_SIZE, 
-        (MinesweepWorld.BOARD_SIZE * MinesweepWorld.CELL_SIZE)
-        + (7 * MinesweepWorld.CELL_SIZE), 1 / 18.0);
+    new MinesweepWorld().play();
   }
-}
\ No newline at end of file
+}
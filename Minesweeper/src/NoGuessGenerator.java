@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// one worker's share of the search for a board, trying candidates until some worker finds
+// one or the generator gives up
+class NoGuessWorker extends RecursiveAction {
+  static final long serialVersionUID = 1L;
+  NoGuessGenerator gen;
+  SplittableRandom rand;
+  int start;
+  long limit;
+
+  NoGuessWorker(NoGuessGenerator gen, SplittableRandom rand, int start, long limit) {
+    this.gen = gen;
+    this.rand = rand;
+    this.start = start;
+    this.limit = limit;
+  }
+
+  protected void compute() {
+    this.gen.search(this.rand, this.start, this.limit);
+  }
+}
+
+// makes boards that the solver can clear from the first click without ever guessing
+// Most random boards need a guess somewhere, so candidates are made and checked on a pool
+// of workers at once, and the first worker to find a board tells the others to stop.
+// Each candidate is only its seed, so workers check it on a board of their own and the
+// winning seed is played out again on the board that asked for it.
+class NoGuessGenerator {
+  Topology topology;
+  int width;
+  int height;
+  int mines;
+  int threads;
+  ForkJoinPool pool;
+  ThreadLocal<Board> workerBoard;
+  ThreadLocal<Solver> workerSolver;
+  AtomicBoolean done;
+  volatile long result;
+  LongAdder tried;
+  LongAdder accepted;
+  long boards;
+  long nanos;
+  long maxTries;
+
+  // a generator for square boards of the given size and number of mines, using the given
+  // number of worker threads
+  NoGuessGenerator(int width, int height, int mines, int threads) {
+    this(new SquareTopology(width, height), mines, threads);
+  }
+
+  // a generator for boards of the given topology and number of mines, using the given
+  // number of worker threads, which all share the topology
+  NoGuessGenerator(Topology topology, int mines, int threads) {
+    this.topology = topology;
+    this.width = topology.width;
+    this.height = topology.height;
+    this.mines = mines;
+    this.threads = threads;
+    this.pool = new ForkJoinPool(threads);
+    this.workerBoard = ThreadLocal.withInitial(() -> new Board(topology));
+    this.workerSolver = ThreadLocal.withInitial(() -> new Solver(this.workerBoard.get()));
+    this.done = new AtomicBoolean(false);
+    this.result = 0;
+    this.tried = new LongAdder();
+    this.accepted = new LongAdder();
+    this.boards = 0;
+    this.nanos = 0;
+    this.maxTries = 100000;
+  }
+
+  // a generator for boards of the given size where the given fraction of cells are mines,
+  // using every core
+  NoGuessGenerator(int width, int height, double density) {
+    this(width, height, (int) Math.round(density * width * height),
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  // EFFECT: fills the given board with mines that can be solved without guessing from a
+  // first click on the cell at start, searching from the given seed
+  // Returns false, leaving the board alone, if no such board turns up in maxTries
+  // candidates, which happens when there are too many mines
+  boolean generate(Board board, long seed, int start) {
+    long begin = System.nanoTime();
+    long before = this.tried.sum();
+    this.done.set(false);
+    SplittableRandom rand = new SplittableRandom(seed);
+    ArrayList<NoGuessWorker> workers = new ArrayList<NoGuessWorker>();
+    for (int i = 0; i < this.threads; i = i + 1) {
+      workers.add(new NoGuessWorker(this, rand.split(), start, before + this.maxTries));
+    }
+    for (NoGuessWorker worker : workers) {
+      this.pool.execute(worker);
+    }
+    for (NoGuessWorker worker : workers) {
+      worker.join();
+    }
+    this.nanos = this.nanos + (System.nanoTime() - begin);
+    if (this.done.get()) {
+      this.boards = this.boards + 1;
+      board.fillAround(this.mines, this.result, start);
+      return true;
+    }
+    else {
+      return false;
+    }
+  }
+
+  // EFFECT: tries candidates from the given generator until a worker finds a board that
+  // needs no guessing, or the total tried reaches limit
+  void search(SplittableRandom rand, int start, long limit) {
+    Board board = this.workerBoard.get();
+    Solver solver = this.workerSolver.get();
+    while (!this.done.get() && (this.tried.sum() < limit)) {
+      long seed = rand.nextLong();
+      board.fillAround(this.mines, seed, start);
+      this.tried.increment();
+      if (this.solvable(board, solver, start)) {
+        this.accepted.increment();
+        if (this.done.compareAndSet(false, true)) {
+          this.result = seed;
+        }
+      }
+    }
+  }
+
+  // Returns true if the solver can reveal every safe cell of the given board starting
+  // from the cell at start, leaving them revealed
+  boolean solvable(Board board, Solver solver, int start) {
+    solver.reset(board);
+    solver.update(board.reveal(start));
+    int safe = solver.nextSafe();
+    while (safe >= 0) {
+      solver.update(board.reveal(safe));
+      safe = solver.nextSafe();
+    }
+    return board.allSafeRevealed();
+  }
+
+  // Returns the fraction of candidates that needed no guessing
+  double acceptanceRate() {
+    long total = this.tried.sum();
+    if (total == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.accepted.sum() / total;
+    }
+  }
+
+  // Returns the number of boards made for each second spent making them
+  double boardsPerSecond() {
+    if (this.nanos == 0) {
+      return 0;
+    }
+    else {
+      return this.boards / (this.nanos / 1e9);
+    }
+  }
+
+  // EFFECT: stops the worker threads
+  void shutdown() {
+    this.pool.shutdown();
+  }
+
+  public String toString() {
+    return this.boards + " boards, " + this.tried.sum() + " candidates, acceptance rate "
+        + this.acceptanceRate() + ", boards/s " + this.boardsPerSecond();
+  }
+
+  // makes boards of the given size with more and more threads, printing how many boards a
+  // second each thread count manages
+  // run with: java NoGuessGenerator [width height mines boards]
+  public static void main(String[] args) {
+    int width = 30;
+    int height = 16;
+    int mines = 99;
+    int boards = 100;
+    if (args.length == 4) {
+      width = Integer.parseInt(args[0]);
+      height = Integer.parseInt(args[1]);
+      mines = Integer.parseInt(args[2]);
+      boards = Integer.parseInt(args[3]);
+    }
+    Board board = new Board(width, height);
+    int start = board.index(height / 2, width / 2);
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= cores; threads = threads * 2) {
+      NoGuessGenerator gen = new NoGuessGenerator(width, height, mines, threads);
+      for (int i = 0; i < boards; i = i + 1) {
+        gen.generate(board, i, start);
+      }
+      System.out.println(threads + " threads: " + gen);
+      gen.shutdown();
+    }
+  }
+}
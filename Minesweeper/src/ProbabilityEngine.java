@@ -0,0 +1,535 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+// works out the chance that each hidden cell is a mine, given what the solver knows, the
+// numbers on the board, and how many mines are left in total
+// The frontier is split into components that share no numbers, and each component is
+// counted on its own and kept until a reveal changes it. The solver passes on every cell
+// it sees revealed or decides, and only the numbers around those, and the components
+// they touch, are looked at again, so after a move the work is proportional to what the
+// move changed rather than to the board. The counts are then weighted by how many ways
+// the rest of the mines fit in the cells no number touches, which all share one chance.
+class ProbabilityEngine {
+  Solver solver;
+  Board board;
+  double[] odds;
+  double[] logFactorial;
+  HashMap<String, Component> cache;
+  int[] slot;
+  int solved;
+  // what each revealed number says, as the mines it still needs followed by its
+  // undecided cells, or null
+  int[][] numbers;
+  // the component each frontier cell is in, or null
+  Component[] owner;
+  ArrayList<Component> components;
+  // the chance of a mine in each cell no number touches
+  double interior;
+  // the cells changed since the last update, and whether everything has to be worked
+  // out again instead
+  int[] changes;
+  int changeCount;
+  BitSet noted;
+  boolean stale;
+  // the cells and numbers already taken in during an update, and room for neighbours
+  BitSet loose;
+  BitSet used;
+  int[] around;
+  int[] cells;
+
+  // components with more cells than this are estimated rather than counted
+  static int MAX_EXACT = 96;
+
+  ProbabilityEngine(Solver solver) {
+    this.solver = solver;
+    this.cache = new HashMap<String, Component>();
+    this.solved = 0;
+    this.around = new int[Topology.MAX_DEGREE];
+    this.cells = new int[Topology.MAX_DEGREE];
+    this.setBoard(solver.board);
+  }
+
+  // EFFECT: makes room for the cells of the given board, with nothing worked out yet
+  void setBoard(Board board) {
+    this.board = board;
+    this.odds = new double[board.size];
+    this.slot = new int[board.size];
+    Arrays.fill(this.slot, -1);
+    this.logFactorial = new double[board.size + 1];
+    for (int i = 1; i <= board.size; i = i + 1) {
+      this.logFactorial[i] = this.logFactorial[i - 1] + Math.log(i);
+    }
+    this.numbers = new int[board.size][];
+    this.owner = new Component[board.size];
+    this.components = new ArrayList<Component>();
+    this.interior = 0;
+    this.changes = new int[64];
+    this.changeCount = 0;
+    this.noted = new BitSet(board.size);
+    this.loose = new BitSet(board.size);
+    this.used = new BitSet(board.size);
+    this.stale = true;
+  }
+
+  // EFFECT: forgets the counted components, ready for a new game on the given board
+  void reset(Board board) {
+    if (board.size != this.board.size) {
+      this.setBoard(board);
+    }
+    else {
+      Arrays.fill(this.numbers, null);
+      Arrays.fill(this.owner, null);
+      this.components.clear();
+      this.noted.clear();
+      this.changeCount = 0;
+      this.stale = true;
+    }
+    this.board = board;
+    this.cache.clear();
+  }
+
+  // EFFECT: notes that the cell at idx has been revealed or decided, so the numbers
+  // around it are looked at again on the next update
+  void changed(int idx) {
+    if (!this.noted.get(idx)) {
+      this.noted.set(idx);
+      if (this.changeCount == this.changes.length) {
+        this.changes = Arrays.copyOf(this.changes, 2 * this.changeCount);
+      }
+      this.changes[this.changeCount] = idx;
+      this.changeCount = this.changeCount + 1;
+    }
+  }
+
+  // Returns the chance that the cell at idx is a mine, as of the last call to update
+  double chance(int idx) {
+    if (this.board.isRevealed(idx) || this.solver.safe.get(idx)) {
+      return 0;
+    }
+    else if (this.solver.mines.get(idx)) {
+      return 1;
+    }
+    else if (this.owner[idx] != null) {
+      return this.odds[idx];
+    }
+    else {
+      return this.interior;
+    }
+  }
+
+  // Returns the hidden cell that is least likely to be a mine, preferring cells on the
+  // frontier and then the first on the board when there is a tie, or -1 if every cell is
+  // revealed or flagged
+  // A cell the solver knows is safe is given without working anything out
+  int safest() {
+    int safe = this.solver.nextSafe();
+    if (safe >= 0) {
+      return safe;
+    }
+    this.update();
+    int best = -1;
+    for (Component component : this.components) {
+      for (int cell : component.cells) {
+        if (!this.board.isFlagged(cell)
+            && ((best < 0) || (this.odds[cell] < this.odds[best])
+                || ((this.odds[cell] == this.odds[best]) && (cell < best)))) {
+          best = cell;
+        }
+      }
+    }
+    if ((best < 0) || (this.interior < this.odds[best])) {
+      int inside = this.firstHidden(false);
+      if (inside >= 0) {
+        best = inside;
+      }
+    }
+    if (best < 0) {
+      best = this.firstHidden(true);
+    }
+    return best;
+  }
+
+  // Returns the first hidden cell that is not flagged, on the frontier or known to be
+  // safe, and is not known to be a mine unless asked for, or -1 if there is none
+  int firstHidden(boolean mines) {
+    for (int i = this.board.revealed.nextClearBit(0); i < this.board.size;
+        i = this.board.revealed.nextClearBit(i + 1)) {
+      if (!this.board.isFlagged(i) && (this.owner[i] == null) && !this.solver.safe.get(i)
+          && (mines || !this.solver.mines.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // EFFECT: works out the chance of a mine in every cell of the board, counting again
+  // only the components next to cells that changed since the last call
+  void update() {
+    ArrayList<int[]> constraints = new ArrayList<int[]>();
+    ArrayList<Integer> frontier = new ArrayList<Integer>();
+    this.findConstraints(constraints, frontier);
+    ArrayList<Component> components = new ArrayList<Component>();
+    for (Component component : this.components) {
+      if (this.owner[component.cells[0]] == component) {
+        components.add(component);
+      }
+    }
+    for (Component component : this.split(constraints, frontier)) {
+      for (int cell : component.cells) {
+        this.owner[cell] = component;
+      }
+      components.add(component);
+    }
+    for (int cell : frontier) {
+      this.slot[cell] = -1;
+    }
+    this.components = components;
+    this.cache.clear();
+    int undecided = this.board.size - this.board.numRevealed
+        - this.solver.mines.cardinality() - this.solver.safe.cardinality();
+    for (Component component : components) {
+      this.cache.put(component.key, component);
+      undecided = undecided - component.cells.length;
+    }
+    int left = this.board.numMines - this.solver.mines.cardinality();
+    this.combine(components, left, Math.max(0, undecided));
+  }
+
+  // EFFECT: looks again at the numbers around every cell changed since the last update,
+  // takes apart the components their cells were in, and adds each number touching a
+  // cell of those, as the mines it still needs followed by its undecided cells, and each
+  // of those cells once to the frontier, numbering it in slot
+  // A cell that is taken in brings in all of its numbers and their cells in turn, so
+  // what is added is whole components, and the components left alone are unchanged
+  // After so many changes that looking around each would take longer than looking at
+  // every number once, such as at the first guess of a game, everything is started again
+  void findConstraints(ArrayList<int[]> constraints, ArrayList<Integer> frontier) {
+    ArrayList<Integer> taken = new ArrayList<Integer>();
+    ArrayList<Integer> numbered = new ArrayList<Integer>();
+    if (this.stale || ((Topology.MAX_DEGREE * this.changeCount) > this.board.numRevealed)) {
+      Arrays.fill(this.numbers, null);
+      Arrays.fill(this.owner, null);
+      for (int i = this.board.revealed.nextSetBit(0); i >= 0;
+          i = this.board.revealed.nextSetBit(i + 1)) {
+        this.renumber(i, taken, numbered);
+      }
+      this.noted.clear();
+      this.changeCount = 0;
+      this.stale = false;
+    }
+    for (int c = 0; c < this.changeCount; c = c + 1) {
+      int idx = this.changes[c];
+      this.noted.clear(idx);
+      this.renumber(idx, taken, numbered);
+      int count = this.board.neighbours(idx, this.around);
+      for (int j = 0; j < count; j = j + 1) {
+        this.renumber(this.around[j], taken, numbered);
+      }
+    }
+    this.changeCount = 0;
+    for (int number : numbered) {
+      this.used.clear(number);
+    }
+    numbered.clear();
+    for (int next = 0; next < taken.size(); next = next + 1) {
+      int cell = taken.get(next);
+      Component component = this.owner[cell];
+      if (component != null) {
+        for (int other : component.cells) {
+          this.owner[other] = null;
+          this.take(other, taken);
+        }
+      }
+      int count = this.board.neighbours(cell, this.around);
+      for (int j = 0; j < count; j = j + 1) {
+        int[] number = this.numbers[this.around[j]];
+        if ((number != null) && !this.used.get(this.around[j])) {
+          this.used.set(this.around[j]);
+          numbered.add(this.around[j]);
+          constraints.add(number);
+          for (int k = 1; k < number.length; k = k + 1) {
+            this.take(number[k], taken);
+            if (this.slot[number[k]] < 0) {
+              this.slot[number[k]] = frontier.size();
+              frontier.add(number[k]);
+            }
+          }
+        }
+      }
+    }
+    for (int cell : taken) {
+      this.loose.clear(cell);
+    }
+    for (int number : numbered) {
+      this.used.clear(number);
+    }
+  }
+
+  // EFFECT: works out again what the number on the cell at idx says, if it is one and
+  // has not been already in this update, and takes in the cells it touched before and
+  // touches now
+  void renumber(int idx, ArrayList<Integer> taken, ArrayList<Integer> numbered) {
+    if (this.used.get(idx)) {
+      return;
+    }
+    this.used.set(idx);
+    numbered.add(idx);
+    int[] number = this.numbers[idx];
+    if (number != null) {
+      for (int k = 1; k < number.length; k = k + 1) {
+        this.take(number[k], taken);
+      }
+    }
+    int need = this.solver.constraint(idx, this.cells);
+    int count = this.solver.lastFound;
+    number = null;
+    if ((need >= 0) && (count > 0)) {
+      number = new int[count + 1];
+      number[0] = need;
+      for (int k = 0; k < count; k = k + 1) {
+        number[k + 1] = this.cells[k];
+        this.take(this.cells[k], taken);
+      }
+    }
+    this.numbers[idx] = number;
+  }
+
+  // EFFECT: adds the cell at idx to the cells taken in, if it is not there already
+  void take(int idx, ArrayList<Integer> taken) {
+    if (!this.loose.get(idx)) {
+      this.loose.set(idx);
+      taken.add(idx);
+    }
+  }
+
+  // Returns the given numbers split into components, reusing the counts of any that are
+  // the same as ones counted before and counting the rest
+  ArrayList<Component> split(ArrayList<int[]> constraints, ArrayList<Integer> frontier) {
+    int[] parent = new int[frontier.size()];
+    for (int i = 0; i < parent.length; i = i + 1) {
+      parent[i] = i;
+    }
+    for (int[] constraint : constraints) {
+      for (int j = 2; j < constraint.length; j = j + 1) {
+        int a = this.find(parent, this.slot[constraint[1]]);
+        int b = this.find(parent, this.slot[constraint[j]]);
+        parent[Math.max(a, b)] = Math.min(a, b);
+      }
+    }
+    // the numbers touching each frontier cell, so cells can be put in breadth first order
+    int[] start = new int[frontier.size() + 1];
+    for (int[] constraint : constraints) {
+      for (int j = 1; j < constraint.length; j = j + 1) {
+        start[this.slot[constraint[j]] + 1] = start[this.slot[constraint[j]] + 1] + 1;
+      }
+    }
+    for (int i = 0; i < frontier.size(); i = i + 1) {
+      start[i + 1] = start[i + 1] + start[i];
+    }
+    int[] touching = new int[start[frontier.size()]];
+    int[] filled = Arrays.copyOf(start, frontier.size());
+    for (int c = 0; c < constraints.size(); c = c + 1) {
+      int[] constraint = constraints.get(c);
+      for (int j = 1; j < constraint.length; j = j + 1) {
+        int s = this.slot[constraint[j]];
+        touching[filled[s]] = c;
+        filled[s] = filled[s] + 1;
+      }
+    }
+    ArrayList<Component> components = new ArrayList<Component>();
+    int[] order = new int[frontier.size()];
+    int[] position = new int[frontier.size()];
+    Arrays.fill(position, -1);
+    boolean[] used = new boolean[constraints.size()];
+    for (int root = 0; root < frontier.size(); root = root + 1) {
+      if (this.find(parent, root) == root) {
+        // breadth first from the root through the numbers its cells share, so each
+        // number's cells end up close together
+        ArrayList<Integer> members = new ArrayList<Integer>();
+        order[0] = root;
+        position[root] = 0;
+        int count = 1;
+        for (int next = 0; next < count; next = next + 1) {
+          int s = order[next];
+          for (int t = start[s]; t < start[s + 1]; t = t + 1) {
+            int c = touching[t];
+            if (!used[c]) {
+              used[c] = true;
+              members.add(c);
+              int[] constraint = constraints.get(c);
+              for (int j = 1; j < constraint.length; j = j + 1) {
+                int other = this.slot[constraint[j]];
+                if (position[other] < 0) {
+                  position[other] = count;
+                  order[count] = other;
+                  count = count + 1;
+                }
+              }
+            }
+          }
+        }
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i = i + 1) {
+          cells[i] = frontier.get(order[i]);
+        }
+        int[][] constraintCells = new int[members.size()][];
+        int[] need = new int[members.size()];
+        for (int m = 0; m < members.size(); m = m + 1) {
+          int[] constraint = constraints.get(members.get(m));
+          need[m] = constraint[0];
+          constraintCells[m] = new int[constraint.length - 1];
+          for (int j = 1; j < constraint.length; j = j + 1) {
+            constraintCells[m][j - 1] = position[this.slot[constraint[j]]];
+          }
+          Arrays.sort(constraintCells[m]);
+        }
+        Component component = new Component(cells, constraintCells, need);
+        Component cached = this.cache.get(component.key);
+        if (cached != null) {
+          component = cached;
+        }
+        else if (component.exact) {
+          component.solve();
+          this.solved = this.solved + 1;
+        }
+        components.add(component);
+      }
+    }
+    return components;
+  }
+
+  // Returns the root of the set holding s, shortening the path to it on the way
+  int find(int[] parent, int s) {
+    while (parent[s] != s) {
+      parent[s] = parent[parent[s]];
+      s = parent[s];
+    }
+    return s;
+  }
+
+  // Returns the log of the number of ways to choose k of n cells, or negative infinity
+  // if there are none
+  double logChoose(int n, int k) {
+    if ((k < 0) || (k > n)) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return this.logFactorial[n] - this.logFactorial[k] - this.logFactorial[n - k];
+  }
+
+  // EFFECT: sets the chance of every frontier and interior cell from the counts of the
+  // given components, with left mines still to place and interior cells touched by no
+  // number
+  // If the mines left cannot fit in the cells left, which only happens when what the
+  // solver was given does not add up, every undecided cell gets an even share of them
+  // Each component's counts are weighted by the ways the other components and the
+  // interior can take the mines it does not, found from running totals of the components
+  // before it and after it, so the whole thing takes time in proportion to the frontier
+  // times the mines it can hold rather than to the product of the components
+  void combine(ArrayList<Component> components, int left, int interior) {
+    ArrayList<Component> counted = new ArrayList<Component>();
+    for (Component component : components) {
+      if (component.exact) {
+        counted.add(component);
+      }
+      else {
+        left = left - (int) Math.round(component.estimate(this.odds));
+      }
+    }
+    left = Math.max(0, left);
+    int most = 0;
+    for (Component component : counted) {
+      most = most + component.cells.length;
+    }
+    most = Math.min(most, left);
+    // rest[t] is the ways to put the mines left after t frontier mines into the interior,
+    // scaled so the largest is 1
+    double[] rest = new double[most + 1];
+    double top = Double.NEGATIVE_INFINITY;
+    for (int t = 0; t <= most; t = t + 1) {
+      top = Math.max(top, this.logChoose(interior, left - t));
+    }
+    if (top == Double.NEGATIVE_INFINITY) {
+      int undecided = interior;
+      for (Component component : counted) {
+        undecided = undecided + component.cells.length;
+      }
+      double share = (undecided == 0) ? 0 : Math.min(1.0, (double) left / undecided);
+      for (Component component : counted) {
+        for (int cell : component.cells) {
+          this.odds[cell] = share;
+        }
+      }
+      this.interior = share;
+      return;
+    }
+    for (int t = 0; t <= most; t = t + 1) {
+      rest[t] = Math.exp(this.logChoose(interior, left - t) - top);
+    }
+    // after[i][t] is the ways for components from i on and the interior to hold the
+    // mines left after t mines in the components before i
+    int m = counted.size();
+    double[][] after = new double[m + 1][];
+    after[m] = rest;
+    for (int i = m - 1; i >= 0; i = i - 1) {
+      double[] ways = counted.get(i).ways;
+      after[i] = new double[most + 1];
+      for (int t = 0; t <= most; t = t + 1) {
+        for (int k = 0; (k < ways.length) && (t + k <= most); k = k + 1) {
+          after[i][t] = after[i][t] + ways[k] * after[i + 1][t + k];
+        }
+      }
+      this.rescale(after[i]);
+    }
+    // before[t] is the ways for the components before i to hold t mines
+    double[] before = new double[most + 1];
+    before[0] = 1;
+    for (int i = 0; i < m; i = i + 1) {
+      Component component = counted.get(i);
+      double[] weight = new double[component.ways.length];
+      double total = 0;
+      for (int k = 0; k < weight.length; k = k + 1) {
+        for (int t = 0; t + k <= most; t = t + 1) {
+          weight[k] = weight[k] + before[t] * after[i + 1][t + k];
+        }
+        total = total + component.ways[k] * weight[k];
+      }
+      for (int pos = 0; pos < component.cells.length; pos = pos + 1) {
+        double mine = 0;
+        for (int k = 0; k < weight.length; k = k + 1) {
+          mine = mine + component.cellWays[pos][k] * weight[k];
+        }
+        this.odds[component.cells[pos]] = total == 0 ? 0 : mine / total;
+      }
+      double[] next = new double[most + 1];
+      for (int t = 0; t <= most; t = t + 1) {
+        for (int k = 0; (k < component.ways.length) && (t + k <= most); k = k + 1) {
+          next[t + k] = next[t + k] + before[t] * component.ways[k];
+        }
+      }
+      this.rescale(next);
+      before = next;
+    }
+    double inside = 0;
+    double total = 0;
+    for (int t = 0; t <= most; t = t + 1) {
+      total = total + before[t] * rest[t];
+      inside = inside + before[t] * rest[t] * (left - t);
+    }
+    this.interior = ((interior == 0) || (total == 0)) ? 0 : inside / total / interior;
+  }
+
+  // EFFECT: scales the given counts so the largest is 1, since only their ratios matter
+  void rescale(double[] counts) {
+    double top = 0;
+    for (double c : counts) {
+      top = Math.max(top, c);
+    }
+    if (top > 0) {
+      for (int i = 0; i < counts.length; i = i + 1) {
+        counts[i] = counts[i] / top;
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+import java.util.SplittableRandom;
+
+// a player that opens in the middle of the board and then reveals cells at random
+class RandomPlayer implements IPlayer {
+  RandomPlayer() {}
+
+  // Returns the middle cell on the first move, and a random hidden cell after that
+  public int nextMove(Game game, SplittableRandom rand) {
+    Board board = game.board;
+    if (game.numClicks == 0) {
+      return board.index(board.height / 2, board.width / 2);
+    }
+    int idx = rand.nextInt(board.size);
+    while (board.isRevealed(idx) || board.isFlagged(idx)) {
+      idx = rand.nextInt(board.size);
+    }
+    return idx;
+  }
+}
@@ -0,0 +1,21 @@
+import java.util.SplittableRandom;
+
+// a board made ahead of time, along with the seed its mines came from and the generator
+// left over from placing them, so a game can carry on as if it had made the board itself
+// Boards that need no guessing also keep the first click they were made for and the
+// seed of the candidate that was chosen
+class ReadyBoard {
+  Board board;
+  long seed;
+  SplittableRandom rand;
+  int start;
+  long candidate;
+
+  ReadyBoard(Board board, long seed, SplittableRandom rand, int start, long candidate) {
+    this.board = board;
+    this.seed = seed;
+    this.rand = rand;
+    this.start = start;
+    this.candidate = candidate;
+  }
+}
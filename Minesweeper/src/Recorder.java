@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// writes down everything that changes a game as it is played, so the session can be played
+// back exactly
+// The log starts with the kind and size of the board, then has one event after another, each a tag
+// byte and its numbers. Cell indices and counts are varints, so most take one or two
+// bytes, and the ticks between two other events are written as a single count. Seeds are
+// written in full, since they are random. Before each new game, and when the recording is
+// finished, a check of the game's state is written, for the replayer to compare against.
+// A recorder with a file appends to it after every move, so a game cut off by the window
+// closing or the program dying can still be played back up to its last move, and keeps
+// only what it has not yet appended, so a long session does not fill up memory.
+class Recorder {
+  byte[] bytes;
+  int length;
+  Path file;
+  int ticks;
+
+  // the first bytes of every log, and the version of the format after them
+  static byte[] MAGIC = {'M', 'S', 'R', 'L'};
+  // Version 1 logs have no kind of board, since all boards were square then
+  static int VERSION = 2;
+
+  // the tags of the events
+  static int NEW_GAME = 1;
+  static int NEW_NO_GUESS_GAME = 2;
+  static int READY = 3;
+  static int PLACED = 4;
+  static int FALLBACK = 5;
+  static int REVEAL = 6;
+  static int REVEAL_ONE = 7;
+  static int FLAG = 8;
+  static int TICKS = 9;
+  static int CHECK = 10;
+
+  // a recorder that keeps its log in memory
+  Recorder() {
+    this.bytes = new byte[256];
+    this.length = 0;
+    this.file = null;
+    this.ticks = 0;
+  }
+
+  // a recorder that also appends its log to the given file after every move
+  Recorder(Path file) {
+    this();
+    this.file = file;
+  }
+
+  // EFFECT: starts the log for the given game, which has not been played yet, and is not on
+  // a graph, since a graph cannot be played back from its size
+  void start(Game game) {
+    if (game.topology.kind == Topology.GRAPH) {
+      throw new IllegalArgumentException("a graph board cannot be recorded");
+    }
+    for (byte b : Recorder.MAGIC) {
+      this.writeByte(b);
+    }
+    this.writeByte(Recorder.VERSION);
+    this.writeByte(game.topology.kind);
+    this.writeVarint(game.width);
+    this.writeVarint(game.height);
+    this.writeVarint(game.numMines);
+    this.newGame(game);
+  }
+
+  // EFFECT: records that the given game has just started on a new board
+  // A board that needs no guessing is empty until the first click, unless it came ready
+  // made from the pool, in which case the candidate it was made from is recorded too
+  // A board that already has mines without being made for a first click is an ordinary
+  // one, made before the game asked for no guessing
+  void newGame(Game game) {
+    this.flushTicks();
+    if ((game.generator == null) || ((game.readyStart < 0) && (game.board.numMines > 0))) {
+      this.writeByte(Recorder.NEW_GAME);
+      this.writeLong(game.seed);
+    }
+    else {
+      this.writeByte(Recorder.NEW_NO_GUESS_GAME);
+      this.writeLong(game.seed);
+      if (game.readyStart >= 0) {
+        this.writeByte(Recorder.READY);
+        this.writeLong(game.candidate);
+        this.writeVarint(game.readyStart);
+      }
+    }
+  }
+
+  // EFFECT: records that the mines of a board needing no guessing were placed for a first
+  // click at start, from the given candidate
+  void placed(long candidate, int start) {
+    this.flushTicks();
+    this.writeByte(Recorder.PLACED);
+    this.writeLong(candidate);
+    this.writeVarint(start);
+    this.flush();
+  }
+
+  // EFFECT: records that no board needing no guessing was found for a first click at
+  // start, so an ordinary one was made
+  void fallback(int start) {
+    this.flushTicks();
+    this.writeByte(Recorder.FALLBACK);
+    this.writeVarint(start);
+    this.flush();
+  }
+
+  // EFFECT: records a reveal of the cell at idx, spreading out from it or not
+  void reveal(int idx, boolean spread) {
+    this.flushTicks();
+    if (spread) {
+      this.writeByte(Recorder.REVEAL);
+    }
+    else {
+      this.writeByte(Recorder.REVEAL_ONE);
+    }
+    this.writeVarint(idx);
+    this.flush();
+  }
+
+  // EFFECT: records a flag being put on or taken off the cell at idx
+  void flag(int idx) {
+    this.flushTicks();
+    this.writeByte(Recorder.FLAG);
+    this.writeVarint(idx);
+    this.flush();
+  }
+
+  // EFFECT: records a tick of the clock, which is written with the others before it when
+  // the next event comes
+  void tick() {
+    this.ticks = this.ticks + 1;
+  }
+
+  // EFFECT: records the state the given game is in, to be checked when it is played back,
+  // and appends the log so far to the file if there is one
+  void check(Game game) {
+    this.flushTicks();
+    this.writeByte(Recorder.CHECK);
+    for (long value : game.summary()) {
+      this.writeVarint(value);
+    }
+    this.flush();
+  }
+
+  // EFFECT: writes the ticks since the last event, if there were any
+  void flushTicks() {
+    if (this.ticks > 0) {
+      this.writeByte(Recorder.TICKS);
+      this.writeVarint(this.ticks);
+      this.ticks = 0;
+    }
+  }
+
+  // EFFECT: appends everything not yet written to the file, if there is one, and forgets it
+  void flush() {
+    if ((this.file != null) && (this.length > 0)) {
+      try {
+        Files.write(this.file, Arrays.copyOf(this.bytes, this.length),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.length = 0;
+      }
+      catch (IOException e) {
+        // left for the next flush to try again
+      }
+    }
+  }
+
+  // Returns the log so far, or for a recorder with a file, the part not yet appended to it
+  byte[] toBytes() {
+    return Arrays.copyOf(this.bytes, this.length);
+  }
+
+  // EFFECT: adds one byte to the log
+  void writeByte(int b) {
+    if (this.length == this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, 2 * this.length);
+    }
+    this.bytes[this.length] = (byte) b;
+    this.length = this.length + 1;
+  }
+
+  // EFFECT: adds the given number, which is not negative, seven bits to a byte with the
+  // top bit set on every byte but the last
+  void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      this.writeByte((int) ((value & 0x7F) | 0x80));
+      value = value >>> 7;
+    }
+    this.writeByte((int) value);
+  }
+
+  // EFFECT: adds all eight bytes of the given number, highest first
+  void writeLong(long value) {
+    for (int shift = 56; shift >= 0; shift = shift - 8) {
+      this.writeByte((int) (value >>> shift));
+    }
+  }
+}
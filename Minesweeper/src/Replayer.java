@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// plays back a log from a Recorder on a game with no window, as fast as it can, checking
+// the game against every check in the log
+// The game's own rules do all the work, so a board is made again from its seed exactly
+// as it was the first time, and the generator is drawn from at the same points so that
+// first clicks move mines the same way.
+class Replayer {
+  byte[] log;
+  int pos;
+  Game game;
+  boolean noGuess;
+  int checks;
+  int failed;
+
+  Replayer() {
+    this.log = new byte[0];
+    this.pos = 0;
+    this.game = null;
+    this.noGuess = false;
+    this.checks = 0;
+    this.failed = 0;
+  }
+
+  // EFFECT: plays back the given log, reusing the last game if it is the same size
+  // A log that several sessions were appended to is played back one session after another
+  // Returns true if every check in the log matched the game played back
+  boolean replay(byte[] log) {
+    this.log = log;
+    this.pos = 0;
+    this.checks = 0;
+    this.failed = 0;
+    this.start();
+    while (this.pos < this.log.length) {
+      int tag = this.readByte();
+      if (tag == Recorder.MAGIC[0]) {
+        this.pos = this.pos - 1;
+        this.start();
+      }
+      else {
+        this.play(tag);
+      }
+    }
+    return this.failed == 0;
+  }
+
+  // EFFECT: reads the start of a session, making a game of its kind and size if the last
+  // game is not
+  void start() {
+    for (byte b : Recorder.MAGIC) {
+      if (this.readByte() != b) {
+        throw new IllegalArgumentException("not a recorded game");
+      }
+    }
+    int version = this.readByte();
+    if ((version < 1) || (version > Recorder.VERSION)) {
+      throw new IllegalArgumentException("unknown log version");
+    }
+    int kind = Topology.SQUARE;
+    if (version > 1) {
+      kind = this.readByte();
+    }
+    int width = (int) this.readVarint();
+    int height = (int) this.readVarint();
+    int mines = (int) this.readVarint();
+    if ((this.game == null) || (this.game.width != width) || (this.game.height != height)
+        || (this.game.numMines != mines) || (this.game.topology.kind != kind)) {
+      this.game = new Game(Topology.of(kind, width, height), mines, 0);
+    }
+  }
+
+  // EFFECT: plays back the event with the given tag, reading its numbers from the log
+  void play(int tag) {
+    Game game = this.game;
+    if (tag == Recorder.NEW_GAME) {
+      game.restart(this.readLong());
+      this.noGuess = false;
+    }
+    else if (tag == Recorder.NEW_NO_GUESS_GAME) {
+      long seed = this.readLong();
+      this.noGuess = true;
+      game.restart(seed);
+      game.board.clear();
+      game.rand = new SplittableRandom(seed);
+    }
+    else if (tag == Recorder.READY) {
+      game.rand.nextLong();
+      game.candidate = this.readLong();
+      game.readyStart = (int) this.readVarint();
+      game.board.fillAround(game.numMines, game.candidate, game.readyStart);
+    }
+    else if (tag == Recorder.PLACED) {
+      game.rand.nextLong();
+      game.board.fillAround(game.numMines, this.readLong(), (int) this.readVarint());
+      game.version = game.version + 1;
+    }
+    else if (tag == Recorder.FALLBACK) {
+      game.rand.nextLong();
+      game.setMines();
+      game.setContacts();
+      game.board.clearAround((int) this.readVarint(), game.rand);
+      game.version = game.version + 1;
+    }
+    else if ((tag == Recorder.REVEAL) || (tag == Recorder.REVEAL_ONE)) {
+      this.reveal((int) this.readVarint(), tag == Recorder.REVEAL);
+    }
+    else if (tag == Recorder.FLAG) {
+      game.toggleFlagAt((int) this.readVarint());
+    }
+    else if (tag == Recorder.TICKS) {
+      long count = this.readVarint();
+      for (long i = 0; i < count; i = i + 1) {
+        game.tick();
+      }
+    }
+    else if (tag == Recorder.CHECK) {
+      long[] expected = new long[game.summary().length];
+      for (int i = 0; i < expected.length; i = i + 1) {
+        expected[i] = this.readVarint();
+      }
+      this.checks = this.checks + 1;
+      if (!Arrays.equals(expected, game.summary())) {
+        this.failed = this.failed + 1;
+      }
+    }
+    else {
+      throw new IllegalArgumentException("unknown event " + tag + " at byte " + (this.pos - 1));
+    }
+  }
+
+  // EFFECT: plays back a reveal of the cell at idx
+  // The mines of a board that needs no guessing were placed by events of their own before
+  // its first reveal, so that reveal must not move them again
+  void reveal(int idx, boolean spread) {
+    if (this.noGuess && (this.game.numClicks == 0)) {
+      this.game.uncover(idx, spread);
+    }
+    else {
+      this.game.revealAt(idx, spread);
+    }
+  }
+
+  // Returns the next byte of the log, from 0 to 255
+  int readByte() {
+    if (this.pos >= this.log.length) {
+      throw new IllegalArgumentException("log ends part way through an event");
+    }
+    int b = this.log[this.pos] & 0xFF;
+    this.pos = this.pos + 1;
+    return b;
+  }
+
+  // Returns the next varint in the log
+  long readVarint() {
+    long value = 0;
+    int shift = 0;
+    int b = this.readByte();
+    while ((b & 0x80) != 0) {
+      value = value | ((long) (b & 0x7F) << shift);
+      shift = shift + 7;
+      b = this.readByte();
+    }
+    return value | ((long) b << shift);
+  }
+
+  // Returns the next eight bytes of the log as a number, highest first
+  long readLong() {
+    long value = 0;
+    for (int i = 0; i < 8; i = i + 1) {
+      value = (value << 8) | this.readByte();
+    }
+    return value;
+  }
+
+  // plays back the given recorded file, or records games played by the solver and plays
+  // them all back, printing how many games a second are played back
+  // run with: java Replayer [file | width height mines games]
+  public static void main(String[] args) throws IOException {
+    if (args.length == 1) {
+      Replayer replayer = new Replayer();
+      boolean matched = replayer.replay(Files.readAllBytes(Paths.get(args[0])));
+      System.out.println(replayer.checks + " checks, " + replayer.failed + " failed, "
+          + (matched ? "replay matches" : "replay differs"));
+      return;
+    }
+    int width = 16;
+    int height = 16;
+    int mines = 40;
+    int games = 10000;
+    if (args.length == 4) {
+      width = Integer.parseInt(args[0]);
+      height = Integer.parseInt(args[1]);
+      mines = Integer.parseInt(args[2]);
+      games = Integer.parseInt(args[3]);
+    }
+    byte[][] logs = new byte[games][];
+    long bytes = 0;
+    SplittableRandom rand = new SplittableRandom(1);
+    IPlayer player = new SolverPlayer();
+    for (int i = 0; i < games; i = i + 1) {
+      Game game = new Game(width, height, mines, i);
+      Recorder recorder = new Recorder();
+      game.record(recorder);
+      while (!game.gameFinished) {
+        game.tick();
+        game.revealAt(player.nextMove(game, rand), true);
+      }
+      recorder.check(game);
+      logs[i] = recorder.toBytes();
+      bytes = bytes + logs[i].length;
+    }
+    Replayer replayer = new Replayer();
+    for (int run = 0; run < 3; run = run + 1) {
+      int failed = 0;
+      long start = System.nanoTime();
+      for (byte[] log : logs) {
+        if (!replayer.replay(log)) {
+          failed = failed + 1;
+        }
+      }
+      double secs = (System.nanoTime() - start) / 1e9;
+      System.out.println(games + " games, " + (bytes / games) + " bytes each, "
+          + (long) (games / secs) + " games/s, " + failed + " failed");
+    }
+  }
+}
@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// saves a game in progress to a file and loads it back, board and all
+// The file is a 64 byte header holding the game's numbers, then the board packed into
+// sections that each start on an 8 byte boundary: one nibble per cell holding its contact
+// count, two cells to a byte, then the mines, the revealed cells and the flagged cells as
+// bits, 64 to a long, for 7 bits a cell in all. Everything is little endian, and the
+// sections are copied straight to and from the file through memory maps, so nothing has
+// to be counted again when a game is loaded. Boards that are not square save which kind of
+// topology they have, but a graph cannot be saved, since it is more than its size. The
+// header has room to grow, and a newer version of the format can add fields to it or
+// sections after the last one.
+class SaveFile {
+  // "MSSV", the version of the format, and the length of the header
+  static int MAGIC = 0x5653534D;
+  // Version 1 files have no number of mines for the game apart from the board's
+  static int VERSION = 2;
+  static int HEADER = 64;
+
+  // the bits of the header's status byte
+  static int STARTED = 1;
+  static int FINISHED = 2;
+  static int MINE_HIT = 4;
+
+  // where the game's own number of mines is in the header, which a board that needs no
+  // guessing does not have yet before its first click
+  static int NUM_MINES_AT = 60;
+
+  // EFFECT: writes the given game to the given file, replacing anything already there
+  void save(Game game, Path file) throws IOException {
+    Board board = game.board;
+    if (board.topology.kind == Topology.GRAPH) {
+      throw new IllegalArgumentException("a graph board cannot be saved");
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer header = this.map(channel, MapMode.READ_WRITE, 0, SaveFile.HEADER);
+      header.putInt(SaveFile.MAGIC);
+      header.putShort((short) SaveFile.VERSION);
+      header.putShort((short) SaveFile.HEADER);
+      header.putInt(board.width);
+      header.putInt(board.height);
+      header.putInt(board.numMines);
+      header.putInt(board.numRevealed);
+      header.putInt(board.numFlagged);
+      header.putInt(game.flags);
+      header.putInt(game.secs);
+      header.putInt(game.ticks);
+      header.putInt(game.numClicks);
+      header.putInt(game.version);
+      header.putLong(game.seed);
+      int status = 0;
+      if (game.gameStarted) {
+        status = status | SaveFile.STARTED;
+      }
+      if (game.gameFinished) {
+        status = status | SaveFile.FINISHED;
+      }
+      if (game.mineHit) {
+        status = status | SaveFile.MINE_HIT;
+      }
+      header.put((byte) status);
+      header.put((byte) board.topology.kind);
+      header.putInt(SaveFile.NUM_MINES_AT, game.numMines);
+      long offset = SaveFile.HEADER;
+      MappedByteBuffer cells = this.map(channel, MapMode.READ_WRITE, offset,
+          this.nibbleBytes(board.size));
+      this.packContacts(board, cells);
+      offset = offset + this.nibbleBytes(board.size);
+      for (BitSet bits : new BitSet[] {board.mines, board.revealed, board.flagged}) {
+        this.map(channel, MapMode.READ_WRITE, offset, this.bitBytes(board.size))
+            .asLongBuffer().put(bits.toLongArray());
+        offset = offset + this.bitBytes(board.size);
+      }
+    }
+  }
+
+  // Returns a new game loaded from the given file
+  Game read(Path file) throws IOException {
+    Game game = new Game(new Board(0, 0), 0);
+    this.load(game, file);
+    return game;
+  }
+
+  // EFFECT: replaces the given game with the one in the given file, reusing its board if
+  // it is the same size
+  void load(Game game, Path file) throws IOException {
+    this.load(game, file, true);
+  }
+
+  // EFFECT: replaces the given game with the one in the given file, reusing its board if
+  // it is the same size, or if asked not to resize, only if it is the same size and
+  // topology, as it must be for a window drawn for the game's board
+  // A game that needs no guessing gets a generator for the loaded board if it is another
+  // size or has other mines
+  // The whole file is checked before the game is changed, so a file that is not a saved
+  // game, is cut short or is from a newer version leaves the game as it was
+  // The game keeps its pool and generator for the games after it, and a solver it has
+  // and anything watching its deltas catch up on the loaded board, but a recording stops,
+  // since it cannot play back a board it did not see made
+  void load(Game game, Path file, boolean resize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < SaveFile.HEADER) {
+        throw new IllegalArgumentException("not a saved game");
+      }
+      MappedByteBuffer header = this.map(channel, MapMode.READ_ONLY, 0, SaveFile.HEADER);
+      if (header.getInt() != SaveFile.MAGIC) {
+        throw new IllegalArgumentException("not a saved game");
+      }
+      int version = header.getShort();
+      int headerLength = header.getShort();
+      if (version > SaveFile.VERSION) {
+        throw new IllegalArgumentException("unknown save version " + version);
+      }
+      int width = header.getInt();
+      int height = header.getInt();
+      long size = (long) width * height;
+      if ((width < 0) || (height < 0) || (size > Integer.MAX_VALUE)) {
+        throw new IllegalArgumentException("bad board size " + width + "x" + height);
+      }
+      int boardMines = header.getInt();
+      int numRevealed = header.getInt();
+      int numFlagged = header.getInt();
+      int flags = header.getInt();
+      int secs = header.getInt();
+      int ticks = header.getInt();
+      int numClicks = header.getInt();
+      int gameVersion = header.getInt();
+      long seed = header.getLong();
+      int status = header.get();
+      int kind = header.get();
+      int numMines = boardMines;
+      if (version >= 2) {
+        numMines = header.getInt(SaveFile.NUM_MINES_AT);
+      }
+      if ((kind < 0) || (kind >= Topology.GRAPH)) {
+        throw new IllegalArgumentException("unknown topology " + kind);
+      }
+      Board board = game.board;
+      boolean same = (board.width == width) && (board.height == height)
+          && (board.topology.kind == kind);
+      if (!resize && !same) {
+        throw new IllegalArgumentException("the saved game is on a " + width + "x" + height
+            + " " + Topology.NAMES[kind] + " board, not a " + board.width + "x"
+            + board.height + " " + board.topology.name() + " one");
+      }
+      long offset = headerLength;
+      long bits = this.bitBytes((int) size);
+      if ((headerLength < SaveFile.HEADER)
+          || (channel.size() < (offset + this.nibbleBytes((int) size) + (3 * bits)))) {
+        throw new IllegalArgumentException("save file is cut short");
+      }
+      MappedByteBuffer cells = this.map(channel, MapMode.READ_ONLY, offset,
+          this.nibbleBytes((int) size));
+      offset = offset + this.nibbleBytes((int) size);
+      MappedByteBuffer mines = this.map(channel, MapMode.READ_ONLY, offset, bits);
+      MappedByteBuffer revealed = this.map(channel, MapMode.READ_ONLY, offset + bits, bits);
+      MappedByteBuffer flagged = this.map(channel, MapMode.READ_ONLY, offset + (2 * bits),
+          bits);
+
+      // the file is whole, so from here on the game can be changed
+      if (!same) {
+        board = new Board(Topology.of(kind, width, height));
+      }
+      board.numMines = boardMines;
+      board.numRevealed = numRevealed;
+      board.numFlagged = numFlagged;
+      this.unpackContacts(cells, board);
+      board.mines = BitSet.valueOf(mines.asLongBuffer());
+      board.revealed = BitSet.valueOf(revealed.asLongBuffer());
+      board.flagged = BitSet.valueOf(flagged.asLongBuffer());
+      game.flags = flags;
+      game.secs = secs;
+      game.ticks = ticks;
+      game.numClicks = numClicks;
+      game.version = gameVersion;
+      game.seed = seed;
+      game.gameStarted = (status & SaveFile.STARTED) != 0;
+      game.gameFinished = (status & SaveFile.FINISHED) != 0;
+      game.mineHit = (status & SaveFile.MINE_HIT) != 0;
+      game.board = board;
+      game.topology = board.topology;
+      game.width = width;
+      game.height = height;
+      game.numMines = numMines;
+      game.rand = new SplittableRandom(game.seed);
+      game.readyStart = -1;
+      game.candidate = 0;
+      game.recorder = null;
+      NoGuessGenerator generator = game.generator;
+      if ((generator != null) && (!same || (generator.mines != numMines))) {
+        generator.shutdown();
+        game.generator = new NoGuessGenerator(board.topology, numMines, generator.threads);
+      }
+      if (game.solver != null) {
+        game.useSolver();
+      }
+      if (game.deltas != null) {
+        game.deltas.snapshot(game);
+      }
+    }
+  }
+
+  // EFFECT: packs the contact counts of the given board into the given buffer
+  // Eight counts are read as one long and squeezed into an int at a time: each count fits
+  // in the low nibble of its byte, so or-ing in the long shifted down four bits puts each
+  // pair in one byte, and the bytes holding pairs are then gathered together
+  void packContacts(Board board, MappedByteBuffer into) {
+    ByteBuffer contacts = ByteBuffer.wrap(board.contacts).order(ByteOrder.LITTLE_ENDIAN);
+    int whole = board.size - (board.size % 8);
+    for (int i = 0; i < whole; i = i + 8) {
+      long pairs = contacts.getLong(i);
+      pairs = (pairs | (pairs >>> 4)) & 0x00FF00FF00FF00FFL;
+      pairs = (pairs | (pairs >>> 8)) & 0x0000FFFF0000FFFFL;
+      into.putInt((int) (pairs | (pairs >>> 16)));
+    }
+    for (int i = whole; i < board.size; i = i + 2) {
+      int pair = board.contacts[i];
+      if ((i + 1) < board.size) {
+        pair = pair | (board.contacts[i + 1] << 4);
+      }
+      into.put((byte) pair);
+    }
+  }
+
+  // EFFECT: unpacks the contact counts in the given buffer into the given board, undoing
+  // packContacts eight counts at a time
+  void unpackContacts(MappedByteBuffer from, Board board) {
+    ByteBuffer contacts = ByteBuffer.wrap(board.contacts).order(ByteOrder.LITTLE_ENDIAN);
+    int whole = board.size - (board.size % 8);
+    for (int i = 0; i < whole; i = i + 8) {
+      long pairs = from.getInt() & 0xFFFFFFFFL;
+      pairs = (pairs | (pairs << 16)) & 0x0000FFFF0000FFFFL;
+      pairs = (pairs | (pairs << 8)) & 0x00FF00FF00FF00FFL;
+      contacts.putLong(i, (pairs | (pairs << 4)) & 0x0F0F0F0F0F0F0F0FL);
+    }
+    for (int i = whole; i < board.size; i = i + 2) {
+      int pair = from.get();
+      board.contacts[i] = (byte) (pair & 0x0F);
+      if ((i + 1) < board.size) {
+        board.contacts[i + 1] = (byte) ((pair >>> 4) & 0x0F);
+      }
+    }
+  }
+
+  // Returns the given part of the file behind the given channel, little endian
+  MappedByteBuffer map(FileChannel channel, MapMode mode, long offset, long length)
+      throws IOException {
+    MappedByteBuffer buffer = channel.map(mode, offset, length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  // Returns the number of bytes the nibbles of the given number of cells take, rounded up
+  // to a whole number of longs
+  long nibbleBytes(int size) {
+    return 8 * ((((size + 1L) / 2) + 7) / 8);
+  }
+
+  // Returns the number of bytes one bit for each of the given number of cells takes,
+  // rounded up to a whole number of longs
+  long bitBytes(int size) {
+    return 8 * ((size + 63L) / 64);
+  }
+}
@@ -0,0 +1,73 @@
+// the combined results of a number of simulated games
+class SimStats {
+  long games;
+  long wins;
+  long clicks;
+  long revealed;
+  int maxClicks;
+
+  SimStats() {
+    this.games = 0;
+    this.wins = 0;
+    this.clicks = 0;
+    this.revealed = 0;
+    this.maxClicks = 0;
+  }
+
+  // EFFECT: counts the result of the given finished game
+  void add(Game game) {
+    this.games = this.games + 1;
+    if (!game.mineHit) {
+      this.wins = this.wins + 1;
+    }
+    this.clicks = this.clicks + game.numClicks;
+    this.revealed = this.revealed + game.board.numRevealed;
+    this.maxClicks = Math.max(this.maxClicks, game.numClicks);
+  }
+
+  // EFFECT: adds the results in the given stats to these
+  SimStats merge(SimStats other) {
+    this.games = this.games + other.games;
+    this.wins = this.wins + other.wins;
+    this.clicks = this.clicks + other.clicks;
+    this.revealed = this.revealed + other.revealed;
+    this.maxClicks = Math.max(this.maxClicks, other.maxClicks);
+    return this;
+  }
+
+  // Returns the fraction of games that were won
+  double winRate() {
+    if (this.games == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.wins / this.games;
+    }
+  }
+
+  // Returns the mean number of clicks in a game
+  double meanClicks() {
+    if (this.games == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.clicks / this.games;
+    }
+  }
+
+  // Returns the mean number of safe cells revealed in a game
+  double meanRevealed() {
+    if (this.games == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.revealed / this.games;
+    }
+  }
+
+  public String toString() {
+    return this.games + " games, win rate " + this.winRate() + ", mean clicks "
+        + this.meanClicks() + ", max clicks " + this.maxClicks + ", mean revealed "
+        + this.meanRevealed();
+  }
+}
@@ -0,0 +1,116 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// plays a share of a simulation, splitting it in half until the share is small enough
+// Every split hands each half its own generator, so the results for a seed are the same
+// however the halves are spread over threads
+class SimTask extends RecursiveTask<SimStats> {
+  static final long serialVersionUID = 1L;
+  Simulator sim;
+  long games;
+  SplittableRandom rand;
+
+  SimTask(Simulator sim, long games, SplittableRandom rand) {
+    this.sim = sim;
+    this.games = games;
+    this.rand = rand;
+  }
+
+  protected SimStats compute() {
+    if (this.games <= Simulator.CHUNK) {
+      SimStats stats = new SimStats();
+      Game game = this.sim.workerGame.get();
+      for (long i = 0; i < this.games; i = i + 1) {
+        this.sim.play(game, this.rand);
+        stats.add(game);
+        this.sim.played.increment();
+      }
+      return stats;
+    }
+    else {
+      SimTask left = new SimTask(this.sim, this.games / 2, this.rand.split());
+      SimTask right = new SimTask(this.sim, this.games - (this.games / 2), this.rand.split());
+      left.fork();
+      return right.compute().merge(left.join());
+    }
+  }
+}
+
+// plays many games of one size at once across a pool of worker threads
+class Simulator {
+  int width;
+  int height;
+  int mines;
+  IPlayer player;
+  ForkJoinPool pool;
+  ThreadLocal<Game> workerGame;
+  LongAdder played;
+
+  // the most games a task plays without splitting
+  static int CHUNK = 64;
+
+  // a simulator that uses every core
+  Simulator(int width, int height, int mines, IPlayer player) {
+    this(width, height, mines, player, Runtime.getRuntime().availableProcessors());
+  }
+
+  // a simulator that uses the given number of threads
+  Simulator(int width, int height, int mines, IPlayer player, int threads) {
+    this.width = width;
+    this.height = height;
+    this.mines = mines;
+    this.player = player;
+    this.pool = new ForkJoinPool(threads);
+    // each worker keeps one game, and so one board, for every game it plays
+    this.workerGame = ThreadLocal.withInitial(() -> new Game(width, height, mines, 0));
+    this.played = new LongAdder();
+  }
+
+  // Plays the given number of games, the boards coming from the given seed
+  SimStats run(long games, long seed) {
+    return this.pool.invoke(new SimTask(this, games, new SplittableRandom(seed)));
+  }
+
+  // EFFECT: plays one game with the player until it is won or lost
+  void play(Game game, SplittableRandom rand) {
+    // simulated games never want a record of their times
+    game.leaderboard = null;
+    game.restart(rand.nextLong());
+    while (!game.gameFinished) {
+      game.revealAt(this.player.nextMove(game, rand), true);
+    }
+  }
+
+  // EFFECT: stops the worker threads
+  void shutdown() {
+    this.pool.shutdown();
+  }
+
+  // plays games on boards of the given size with more and more threads, printing the
+  // results and how many games a second each thread count manages
+  // run with: java Simulator [width height mines games]
+  public static void main(String[] args) {
+    int width = 18;
+    int height = 18;
+    int mines = 40;
+    long games = 200000;
+    if (args.length == 4) {
+      width = Integer.parseInt(args[0]);
+      height = Integer.parseInt(args[1]);
+      mines = Integer.parseInt(args[2]);
+      games = Long.parseLong(args[3]);
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= cores; threads = threads * 2) {
+      Simulator sim = new Simulator(width, height, mines, new RandomPlayer(), threads);
+      sim.run(games / 10, 1);
+      long start = System.nanoTime();
+      SimStats stats = sim.run(games, 2);
+      double secs = (System.nanoTime() - start) / 1e9;
+      System.out.println(threads + " threads: " + (long) (games / secs) + " games/s; " + stats);
+      sim.shutdown();
+    }
+  }
+}
@@ -0,0 +1,280 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// works out which hidden cells of a board are certainly safe and which are certainly
+// mines from the numbers on the revealed cells next to them
+// Only cells whose surroundings have changed are looked at again, so the work after a
+// move is proportional to what the move revealed, not to the size of the board
+class Solver {
+  Board board;
+  BitSet safe;
+  BitSet mines;
+  BitSet queued;
+  int[] found;
+  int foundCount;
+  int[] work;
+  int workCount;
+  int[] touching;
+  int[] around;
+  int[] near;
+  int[] unknown;
+  int[] otherUnknown;
+  int lastFound;
+  ProbabilityEngine odds;
+
+  Solver(Board board) {
+    this.board = board;
+    this.safe = new BitSet(board.size);
+    this.mines = new BitSet(board.size);
+    this.queued = new BitSet(board.size);
+    this.found = new int[64];
+    this.foundCount = 0;
+    this.work = new int[64];
+    this.workCount = 0;
+    this.touching = new int[Topology.MAX_DEGREE];
+    this.around = new int[Topology.MAX_DEGREE];
+    this.near = new int[Topology.MAX_DEGREE];
+    this.unknown = new int[Topology.MAX_DEGREE];
+    this.otherUnknown = new int[Topology.MAX_DEGREE];
+    this.odds = null;
+  }
+
+  // EFFECT: forgets everything worked out so far, ready for a new game on the given board
+  void reset(Board board) {
+    this.board = board;
+    this.safe.clear();
+    this.mines.clear();
+    this.queued.clear();
+    this.foundCount = 0;
+    this.workCount = 0;
+    if (this.odds != null) {
+      this.odds.reset(board);
+    }
+  }
+
+  // Returns the engine that works out the chance of a mine in each cell when nothing is
+  // certain, starting one the first time it is asked for
+  ProbabilityEngine probabilities() {
+    if (this.odds == null) {
+      this.odds = new ProbabilityEngine(this);
+    }
+    return this.odds;
+  }
+
+  // Returns true if the cell at idx is known to be safe
+  boolean isSafe(int idx) {
+    return this.safe.get(idx) || (this.board.isRevealed(idx) && !this.board.isMine(idx));
+  }
+
+  // Returns true if the cell at idx is known to be a mine
+  boolean isMine(int idx) {
+    return this.mines.get(idx);
+  }
+
+  // Returns a hidden cell that is known to be safe, or -1 if there are none
+  // Safe cells are also kept in the order they were found, so this does not have to
+  // search the whole board; the ones revealed since are dropped from the end as it goes
+  int nextSafe() {
+    int i = this.foundCount - 1;
+    while ((i >= 0) && !this.isHiddenSafe(this.found[i])) {
+      if (i == (this.foundCount - 1)) {
+        this.foundCount = this.foundCount - 1;
+      }
+      i = i - 1;
+    }
+    if (i < 0) {
+      return -1;
+    }
+    else {
+      return this.found[i];
+    }
+  }
+
+  // Returns true if the cell at idx is known to be safe and is neither revealed nor flagged
+  boolean isHiddenSafe(int idx) {
+    return this.safe.get(idx) && !this.board.isRevealed(idx) && !this.board.isFlagged(idx);
+  }
+
+  // EFFECT: takes in the count cells the last reveal uncovered, which are at the start of
+  // board.lastRevealed, and works out everything that follows from them
+  void update(int count) {
+    for (int i = 0; i < count; i = i + 1) {
+      int idx = this.board.lastRevealed[i];
+      this.safe.clear(idx);
+      if (this.odds != null) {
+        this.odds.changed(idx);
+      }
+      this.enqueue(idx);
+      this.enqueueAround(idx);
+    }
+    this.propagate();
+  }
+
+  // EFFECT: looks at every revealed cell on the board, for when the solver is started
+  // part way through a game
+  void updateAll() {
+    for (int i = this.board.revealed.nextSetBit(0); i >= 0;
+        i = this.board.revealed.nextSetBit(i + 1)) {
+      this.enqueue(i);
+    }
+    this.propagate();
+  }
+
+  // EFFECT: adds the cell at idx to the cells to look at, if it is a revealed number that
+  // is not already waiting
+  void enqueue(int idx) {
+    if (this.board.isRevealed(idx) && !this.board.isMine(idx) && !this.queued.get(idx)) {
+      this.queued.set(idx);
+      if (this.workCount == this.work.length) {
+        this.work = Arrays.copyOf(this.work, 2 * this.workCount);
+      }
+      this.work[this.workCount] = idx;
+      this.workCount = this.workCount + 1;
+    }
+  }
+
+  // EFFECT: adds every revealed cell touching idx to the cells to look at
+  void enqueueAround(int idx) {
+    int count = this.board.neighbours(idx, this.near);
+    for (int i = 0; i < count; i = i + 1) {
+      this.enqueue(this.near[i]);
+    }
+  }
+
+  // EFFECT: looks at waiting cells until there are none left
+  void propagate() {
+    while (this.workCount > 0) {
+      this.workCount = this.workCount - 1;
+      int idx = this.work[this.workCount];
+      this.queued.clear(idx);
+      this.examine(idx);
+    }
+  }
+
+  // EFFECT: fills the given array with the hidden cells touching idx that are not yet
+  // known to be safe or mines, leaving how many there are in lastFound
+  // Returns how many mines are among them, or -1 if idx is not a revealed number
+  int constraint(int idx, int[] cells) {
+    if (!this.board.isRevealed(idx) || this.board.isMine(idx)) {
+      return -1;
+    }
+    int minesLeft = this.board.getContacts(idx);
+    int count = this.board.neighbours(idx, this.touching);
+    int found = 0;
+    for (int i = 0; i < count; i = i + 1) {
+      int other = this.touching[i];
+      if (this.mines.get(other)) {
+        minesLeft = minesLeft - 1;
+      }
+      else if (!this.board.isRevealed(other) && !this.safe.get(other)) {
+        cells[found] = other;
+        found = found + 1;
+      }
+    }
+    this.lastFound = found;
+    return minesLeft;
+  }
+
+  // EFFECT: works out what the number on the revealed cell at idx says about its hidden
+  // neighbours, on its own and alongside each nearby number
+  void examine(int idx) {
+    int minesLeft = this.constraint(idx, this.unknown);
+    int count = this.lastFound;
+    if ((minesLeft < 0) || (count == 0)) {
+      return;
+    }
+    if (minesLeft == 0) {
+      this.markAll(this.unknown, count, false);
+    }
+    else if (minesLeft == count) {
+      this.markAll(this.unknown, count, true);
+    }
+    else {
+      this.compareNearby(idx, minesLeft, count);
+    }
+  }
+
+  // EFFECT: compares the hidden cells around idx with those around each revealed cell that
+  // shares one of them, and when one set holds the other, works out the cells only in
+  // the bigger one from the difference between the two numbers
+  // Cells worked out part way through stay in the sets being compared, which is still
+  // sound since each set's number remains true of it
+  void compareNearby(int idx, int minesLeft, int count) {
+    for (int i = 0; i < count; i = i + 1) {
+      int sharers = this.board.neighbours(this.unknown[i], this.around);
+      for (int j = 0; j < sharers; j = j + 1) {
+        int other = this.around[j];
+        if (other != idx) {
+          int otherLeft = this.constraint(other, this.otherUnknown);
+          int otherCount = this.lastFound;
+          if ((otherLeft < 0) || (otherCount == 0)) {
+            // nothing to compare with
+          }
+          else if ((otherCount > count) 
+              && this.holds(this.otherUnknown, otherCount, this.unknown, count)) {
+            this.markDifference(this.otherUnknown, otherCount, this.unknown, count,
+                otherLeft - minesLeft);
+          }
+          else if ((count > otherCount)
+              && this.holds(this.unknown, count, this.otherUnknown, otherCount)) {
+            this.markDifference(this.unknown, count, this.otherUnknown, otherCount,
+                minesLeft - otherLeft);
+          }
+        }
+      }
+    }
+  }
+
+  // Returns true if every one of the first smallCount cells of small is among the first
+  // bigCount cells of big
+  boolean holds(int[] big, int bigCount, int[] small, int smallCount) {
+    boolean all = true;
+    for (int i = 0; i < smallCount; i = i + 1) {
+      all = all && this.board.contains(big, bigCount, small[i]);
+    }
+    return all;
+  }
+
+  // EFFECT: given that the cells in big but not in small hold the given number of mines,
+  // marks them all safe if that number is zero, or all mines if it is all of them
+  void markDifference(int[] big, int bigCount, int[] small, int smallCount, int minesLeft) {
+    int extra = bigCount - smallCount;
+    if ((minesLeft == 0) || (minesLeft == extra)) {
+      for (int i = 0; i < bigCount; i = i + 1) {
+        if (!this.board.contains(small, smallCount, big[i])) {
+          this.mark(big[i], minesLeft != 0);
+        }
+      }
+    }
+  }
+
+  // EFFECT: marks the first count of the given cells as all mines or all safe
+  void markAll(int[] cells, int count, boolean mine) {
+    for (int i = 0; i < count; i = i + 1) {
+      this.mark(cells[i], mine);
+    }
+  }
+
+  // EFFECT: records that the cell at idx is a mine or is safe, and looks again at the
+  // numbers touching it
+  void mark(int idx, boolean mine) {
+    if (this.safe.get(idx) || this.mines.get(idx) || this.board.isRevealed(idx)) {
+      return;
+    }
+    if (mine) {
+      this.mines.set(idx);
+    }
+    else {
+      this.safe.set(idx);
+      if (this.foundCount == this.found.length) {
+        this.found = Arrays.copyOf(this.found, 2 * this.foundCount);
+      }
+      this.found[this.foundCount] = idx;
+      this.foundCount = this.foundCount + 1;
+    }
+    if (this.odds != null) {
+      this.odds.changed(idx);
+    }
+    this.enqueueAround(idx);
+  }
+}
@@ -0,0 +1,24 @@
+import java.util.SplittableRandom;
+
+// a player that reveals cells the solver has shown to be safe, and when there are none,
+// guesses the cell least likely to be a mine
+class SolverPlayer implements IPlayer {
+  SolverPlayer() {}
+
+  // Returns the middle cell on the first move, then a known safe cell if there is one,
+  // and otherwise the hidden cell least likely to be a mine
+  public int nextMove(Game game, SplittableRandom rand) {
+    Board board = game.board;
+    if (game.solver == null) {
+      game.useSolver();
+    }
+    if (game.numClicks == 0) {
+      return board.index(board.height / 2, board.width / 2);
+    }
+    int idx = game.solver.nextSafe();
+    if (idx >= 0) {
+      return idx;
+    }
+    return game.solver.probabilities().safest();
+  }
+}
@@ -0,0 +1,26 @@
+// the usual board, where each cell touches the eight around it and the edges stop
+// Neighbours are worked out from the row and column when asked for rather than kept in a
+// table, which would take 36 bytes a cell, several times the board itself.
+class SquareTopology extends Topology {
+  SquareTopology(int width, int height) {
+    super(Topology.SQUARE, width, height);
+  }
+
+  int neighbours(int idx, int[] out) {
+    int row = idx / this.width;
+    int col = idx % this.width;
+    int count = 0;
+    for (int dr = -1; dr <= 1; dr = dr + 1) {
+      for (int dc = -1; dc <= 1; dc = dc + 1) {
+        int r = row + dr;
+        int c = col + dc;
+        if (!((dr == 0) && (dc == 0))
+            && (r >= 0) && (r < this.height) && (c >= 0) && (c < this.width)) {
+          out[count] = (r * this.width) + c;
+          count = count + 1;
+        }
+      }
+    }
+    return count;
+  }
+}
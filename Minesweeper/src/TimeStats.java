@@ -0,0 +1,89 @@
+// the winning times for one kind of game, in a fixed amount of memory however many games
+// are won
+// The best time is kept as it changes, and the rest are counted in a Histogram, whose
+// buckets are a second wide up to 8 seconds and an eighth of a power of two wide above,
+// which is enough to give the mean exactly and percentiles to within 12.5%.
+class TimeStats {
+  int best;
+  Histogram times;
+
+  TimeStats(String key) {
+    this.best = Integer.MAX_VALUE;
+    this.times = new Histogram(key);
+  }
+
+  // EFFECT: counts a win in the given number of seconds
+  void add(int secs) {
+    this.best = Math.min(this.best, secs);
+    this.times.record(secs);
+  }
+
+  // Returns the number of wins
+  long count() {
+    return this.times.count.sum();
+  }
+
+  // Returns the mean time of a win, or 0 if there are none
+  double mean() {
+    long count = this.count();
+    if (count == 0) {
+      return 0;
+    }
+    else {
+      return (double) this.times.total.sum() / count;
+    }
+  }
+
+  // Returns the time that the given fraction of wins took at most, to within 12.5%
+  long percentile(double fraction) {
+    return this.times.percentile(fraction);
+  }
+
+  // Returns these stats as one line of a leaderboard file: the count, best, total and
+  // slowest time, then the count in each bucket that has any
+  String toLine() {
+    StringBuilder line = new StringBuilder();
+    line.append(this.count()).append('\t').append(this.best).append('\t')
+        .append(this.times.total.sum()).append('\t').append(this.times.max.get()).append('\t');
+    String sep = "";
+    for (int i = 0; i < this.times.counts.length(); i = i + 1) {
+      long n = this.times.counts.get(i);
+      if (n > 0) {
+        line.append(sep).append(i).append(':').append(n);
+        sep = ",";
+      }
+    }
+    return line.toString();
+  }
+
+  // EFFECT: adds the given stats to these
+  void add(TimeStats other) {
+    this.best = Math.min(this.best, other.best);
+    this.times.count.add(other.times.count.sum());
+    this.times.total.add(other.times.total.sum());
+    this.times.max.accumulateAndGet(other.times.max.get(), Math::max);
+    for (int i = 0; i < other.times.counts.length(); i = i + 1) {
+      long n = other.times.counts.get(i);
+      if (n > 0) {
+        this.times.counts.addAndGet(i, n);
+      }
+    }
+  }
+
+  // EFFECT: adds the stats in the given fields of a line from toLine to these
+  // Throws NumberFormatException or IndexOutOfBoundsException, part way through, if the
+  // line is not one toLine wrote
+  void addLine(String[] fields, int from) {
+    this.times.count.add(Long.parseLong(fields[from]));
+    this.best = Math.min(this.best, Integer.parseInt(fields[from + 1]));
+    this.times.total.add(Long.parseLong(fields[from + 2]));
+    this.times.max.accumulateAndGet(Long.parseLong(fields[from + 3]), Math::max);
+    if (fields.length > (from + 4)) {
+      for (String bucket : fields[from + 4].split(",")) {
+        int colon = bucket.indexOf(':');
+        this.times.counts.addAndGet(Integer.parseInt(bucket.substring(0, colon)),
+            Long.parseLong(bucket.substring(colon + 1)));
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+// which cells of a board touch which, so the rules work the same on any shape of board
+// Cells are numbered 0 to size - 1, and width and height say how they are laid out to be
+// shown. A cell may touch at most MAX_DEGREE others, so a count of the mines around it
+// always fits in the nibble that boards are saved and sent in.
+abstract class Topology {
+  int kind;
+  int width;
+  int height;
+  int size;
+
+  // the kinds of topology, which is how they are saved and recorded
+  static int SQUARE = 0;
+  static int HEX = 1;
+  static int TORUS = 2;
+  static int GRAPH = 3;
+  static String[] NAMES = {"square", "hex", "torus", "graph"};
+
+  // the most cells any cell may touch
+  static int MAX_DEGREE = 8;
+
+  Topology(int kind, int width, int height) {
+    if ((width < 0) || (height < 0) || (((long) width * height) > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("bad board size " + width + "x" + height);
+    }
+    this.kind = kind;
+    this.width = width;
+    this.height = height;
+    this.size = width * height;
+  }
+
+  // EFFECT: writes the indices of the cells touching the cell at idx into the given array,
+  // which has room for MAX_DEGREE of them
+  // Returns the number of indices written
+  abstract int neighbours(int idx, int[] out);
+
+  // Returns the name of this kind of topology
+  String name() {
+    return Topology.NAMES[this.kind];
+  }
+
+  // Returns the topology of the given kind laid out as a grid of the given size, which
+  // cannot be a graph, since a graph is more than its size
+  static Topology of(int kind, int width, int height) {
+    if (kind == Topology.SQUARE) {
+      return new SquareTopology(width, height);
+    }
+    else if ((kind == Topology.HEX) || (kind == Topology.TORUS)) {
+      return new CsrTopology(kind, width, height);
+    }
+    else {
+      throw new IllegalArgumentException("unknown topology " + kind);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+import java.awt.Color;
+import java.awt.Point;
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+class Utils {
+  Utils() {}
+  
+  // the color of the number on a revealed cell, for each number of mines it can touch
+  static Color[] CONTACT_COLORS = {
+    new Color(0, 0, 0, 0),
+    new Color(80, 160, 230, 255),
+    new Color(50, 190, 40, 255),
+    new Color(215, 35, 35, 255),
+    new Color(95, 5, 190, 255),
+    new Color(255, 215, 10, 255),
+    new Color(5, 200, 200, 255),
+    new Color(250, 135, 210, 255),
+    new Color(80, 225, 140, 255)
+  };
+  
+  // the colors of unrevealed cells, for each parity
+  static Color[] HIDDEN_COLORS = {
+    new Color(165, 230, 80, 255),
+    new Color(150, 215, 75, 255)
+  };
+  
+  // the colors of revealed cells, for each parity
+  static Color[] REVEALED_COLORS = {
+    new Color(245, 235, 200, 255),
+    new Color(235, 225, 185, 255)
+  };
+  
+  // the color of a mine
+  static Color MINE_COLOR = new Color(200, 10, 10);
+  
+  // Returns the color of the number on a cell touching the given number of mines
+  Color getColor(int contacts) {
+    if ((contacts >= 1) && (contacts <= 8)) {
+      return Utils.CONTACT_COLORS[contacts];
+    }
+    else {
+      return Utils.CONTACT_COLORS[0];
+    }
+  }
+  
+  // Returns the color of a cell with the given parity, depending on if it has been revealed
+  Color cellColor(boolean revealed, int parity) {
+    if (revealed) {
+      return Utils.REVEALED_COLORS[parity];
+    }
+    else {
+      return Utils.HIDDEN_COLORS[parity];
+    }
+  }
+  
+  // converts a point to a posn
+  Posn pointToPosn(Point p) {
+    return new Posn(p.x, p.y);
+  }
+  
+  // Returns the font size based on the board size
+  int getFontSize(int boardSize) {
+    if (boardSize >= 70) {
+      return 5;
+    }
+    else if (boardSize >= 55) {
+      return 8;
+    }
+    else if (boardSize >= 40) {
+      return 10;
+    }
+    else if (boardSize >= 30) {
+      return 15;
+    }
+    else if (boardSize >= 25) {
+      return 20;
+    }
+    else if (boardSize >= 20) {
+      return 22;
+    }
+    else if (boardSize >= 15) {
+      return 25;
+    }
+    else if (boardSize >= 10) {
+      return 30;
+    }
+    else {
+      return 35;
+    }
+  }
+}